@@ -0,0 +1,439 @@
+package railway;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * An immutable, array-based snapshot of the layout of a railway track, intended for read-heavy
+ * work such as routing and simulation.
+ * </p>
+ * 
+ * <p>
+ * The junctions of the track are numbered densely from zero, as are its sections. Each end-point
+ * of a junction is given a slot, numbered junction * 3 + branch.ordinal(), so the adjacency of the
+ * track is held in compressed-sparse-row form with a fixed row width of three: for each slot, the
+ * arrays record the section connected on that end-point and the slot at the other end of that
+ * section. Traversing the compiled track therefore only reads from int arrays, and never allocates.
+ * </p>
+ * 
+ * <p>
+ * A compiled track does not change when the track it was compiled from is modified. Use
+ * {@link Track#compile()} to obtain one.
+ * </p>
+ * 
+ * @author Addison Gourluck
+ */
+public final class CompiledTrack {
+	
+	/** The value used for a junction, slot or section that doesn't exist. */
+	public static final int NONE = -1;
+	
+	/** The location key of a location that is not on the track. */
+	public static final long NO_LOCATION = Long.MIN_VALUE;
+	
+	private static final Branch[] BRANCHES = Branch.values();
+	
+	private final Junction[] junctions;
+	private final Map<Junction, Integer> junctionIds;
+	
+	private final Section[] sections;
+	private final Map<Section, Integer> sectionIds;
+	private final int[] lengths;
+	
+	// For each slot, the section connected on it and the slot at the other end of that section
+	private final int[] sectionAt;
+	private final int[] opposite;
+	
+	// The most idle route search workspaces kept for reuse
+	private static final int POOLED_SEARCHES = Runtime.getRuntime().availableProcessors();
+	
+	// The idle route search workspaces of this track, and how many there are
+	private final Queue<RouteSearch> searches = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pooledSearches = new AtomicInteger();
+	
+	// The most recently selected landmarks of this track, if any
+	private volatile Landmarks landmarks;
+	
+	/*
+	 * invariant: for each slot s with sectionAt[s] != NONE, opposite[opposite[s]] == s and
+	 * sectionAt[opposite[s]] == sectionAt[s]
+	 */
+	
+	/**
+	 * Compiles the given sections, which must form a valid track.
+	 * 
+	 * @param trackSections - The sections of the track.
+	 */
+	CompiledTrack(Collection<Section> trackSections) {
+		sections = trackSections.toArray(new Section[trackSections.size()]);
+		sectionIds = new HashMap<>(sections.length * 2);
+		lengths = new int[sections.length];
+		
+		junctionIds = new HashMap<>();
+		int[] ends = new int[sections.length * 2];
+		for (int i = 0; i < sections.length; i++) {
+			Section section = sections[i];
+			sectionIds.put(section, i);
+			lengths[i] = section.getLength();
+			ends[2 * i] = encode(section.getFirstEndPoint());
+			ends[2 * i + 1] = encode(section.getSecondEndPoint());
+		}
+		
+		junctions = new Junction[junctionIds.size()];
+		for (Map.Entry<Junction, Integer> entry : junctionIds.entrySet()) {
+			junctions[entry.getValue()] = entry.getKey();
+		}
+		
+		sectionAt = new int[junctions.length * BRANCHES.length];
+		opposite = new int[sectionAt.length];
+		Arrays.fill(sectionAt, NONE);
+		Arrays.fill(opposite, NONE);
+		for (int i = 0; i < sections.length; i++) {
+			int first = ends[2 * i];
+			int second = ends[2 * i + 1];
+			sectionAt[first] = i;
+			sectionAt[second] = i;
+			opposite[first] = second;
+			opposite[second] = first;
+		}
+	}
+	
+	/**
+	 * Returns the slot of the given end-point, numbering its junction if it hasn't been seen yet.
+	 */
+	private int encode(JunctionBranch endPoint) {
+		Integer id = junctionIds.get(endPoint.getJunction());
+		if (id == null) {
+			id = junctionIds.size();
+			junctionIds.put(endPoint.getJunction(), id);
+		}
+		return slot(id, endPoint.getBranch());
+	}
+	
+	/**
+	 * Returns the slot for the given branch of the junction with the given number.
+	 * 
+	 * @param junction - The number of a junction.
+	 * @param branch - A branch of the junction.
+	 * @return junction * 3 + branch.ordinal()
+	 */
+	public static int slot(int junction, Branch branch) {
+		return junction * BRANCHES.length + branch.ordinal();
+	}
+	
+	/**
+	 * Returns the number of the junction that the given slot belongs to.
+	 * 
+	 * @param slot - A slot of this track.
+	 * @return The number of the junction of the slot.
+	 */
+	public static int junctionOf(int slot) {
+		return slot / BRANCHES.length;
+	}
+	
+	/**
+	 * Returns the branch that the given slot corresponds to.
+	 * 
+	 * @param slot - A slot of this track.
+	 * @return The branch of the slot.
+	 */
+	public static Branch branchOf(int slot) {
+		return BRANCHES[slot % BRANCHES.length];
+	}
+	
+	/**
+	 * Returns the number of junctions on the track.
+	 * 
+	 * @return The number of junctions on the track.
+	 */
+	public int junctionCount() {
+		return junctions.length;
+	}
+	
+	/**
+	 * Returns the number of sections in the track.
+	 * 
+	 * @return The number of sections in the track.
+	 */
+	public int sectionCount() {
+		return sections.length;
+	}
+	
+	/**
+	 * Returns the number of slots of the track, which is three times the number of junctions.
+	 * 
+	 * @return The number of slots of the track.
+	 */
+	public int slotCount() {
+		return sectionAt.length;
+	}
+	
+	/**
+	 * Returns the number given to the junction, or NONE if it isn't on the track.
+	 * 
+	 * @param junction - The junction to look up.
+	 * @return The number of the junction, or NONE.
+	 */
+	public int junctionId(Junction junction) {
+		Integer id = junctionIds.get(junction);
+		return (id == null) ? NONE : id;
+	}
+	
+	/**
+	 * Returns the junction with the given number.
+	 * 
+	 * @param junction - The number of a junction on the track.
+	 * @return The junction with that number.
+	 * @throws IndexOutOfBoundsException If there is no junction with that number.
+	 */
+	public Junction junction(int junction) {
+		return junctions[junction];
+	}
+	
+	/**
+	 * Returns the slot of the given end-point, or NONE if its junction isn't on the track.
+	 * 
+	 * @param endPoint - The end-point to look up.
+	 * @return The slot of the end-point, or NONE.
+	 */
+	public int slot(JunctionBranch endPoint) {
+		int junction = junctionId(endPoint.getJunction());
+		return (junction == NONE) ? NONE : slot(junction, endPoint.getBranch());
+	}
+	
+	/**
+	 * Returns the end-point corresponding to the given slot.
+	 * 
+	 * @param slot - A slot of this track.
+	 * @return The canonical end-point of the slot.
+	 */
+	public JunctionBranch endPoint(int slot) {
+		return JunctionBranch.of(junctions[junctionOf(slot)], branchOf(slot));
+	}
+	
+	/**
+	 * Returns the number given to the section, or NONE if it isn't in the track.
+	 * 
+	 * @param section - The section to look up.
+	 * @return The number of the section, or NONE.
+	 */
+	public int sectionId(Section section) {
+		Integer id = sectionIds.get(section);
+		return (id == null) ? NONE : id;
+	}
+	
+	/**
+	 * Returns the section with the given number.
+	 * 
+	 * @param section - The number of a section in the track.
+	 * @return The section with that number.
+	 * @throws IndexOutOfBoundsException If there is no section with that number.
+	 */
+	public Section section(int section) {
+		return sections[section];
+	}
+	
+	/**
+	 * Returns the length of the section with the given number.
+	 * 
+	 * @param section - The number of a section in the track.
+	 * @return The length of the section, in meters.
+	 */
+	public int length(int section) {
+		return lengths[section];
+	}
+	
+	/**
+	 * Returns the number of the section connected on the given slot, or NONE if there isn't one.
+	 * 
+	 * @param slot - A slot of this track.
+	 * @return The section connected on the slot, or NONE.
+	 */
+	public int sectionAt(int slot) {
+		return sectionAt[slot];
+	}
+	
+	/**
+	 * Returns the slot at the other end of the section connected on the given slot, or NONE if
+	 * there is no section connected on it.
+	 * 
+	 * @param slot - A slot of this track.
+	 * @return The slot at the other end of the section, or NONE.
+	 */
+	public int opposite(int slot) {
+		return opposite[slot];
+	}
+	
+	/**
+	 * <p>
+	 * Returns a key that identifies the given location on this track, which is the same for all
+	 * equivalent locations (see {@link Location#equals(Object)}), and different for locations that
+	 * are not equivalent, so that locations can be stored in primitive collections.
+	 * </p>
+	 * 
+	 * <p>
+	 * The key of a location at a junction is ((long) NONE &lt;&lt; 32) | junction, and the key of any
+	 * other location is ((long) section &lt;&lt; 32) | offset, where offset is its distance from the
+	 * first end-point of the numbered section.
+	 * </p>
+	 * 
+	 * @param location - A location.
+	 * @return The key of the location, or NO_LOCATION if it isn't on this track.
+	 */
+	public long locationKey(Location location) {
+		if (location.atAJunction()) {
+			int junction = junctionId(location.getEndPoint().getJunction());
+			return (junction == NONE) ? NO_LOCATION : ((long) NONE << 32) | junction;
+		}
+		int section = sectionId(location.getSection());
+		if (section == NONE) {
+			return NO_LOCATION;
+		}
+		int offset = sections[section].getFirstEndPoint().equals(location.getEndPoint())
+				? location.getOffset() : lengths[section] - location.getOffset();
+		return ((long) section << 32) | offset;
+	}
+	
+	/**
+	 * Returns a location with the given key (see locationKey).
+	 * 
+	 * @param key - The key of a location on this track.
+	 * @return A location with that key.
+	 * @throws IllegalArgumentException If the key is not the key of a location on this track.
+	 */
+	public Location location(long key) throws IllegalArgumentException {
+		int high = (int) (key >> 32);
+		int low = (int) key;
+		if (high == NONE && low >= 0 && low < junctions.length) {
+			for (Branch branch : BRANCHES) {
+				int slot = slot(low, branch);
+				if (sectionAt[slot] != NONE) {
+					return new Location(sections[sectionAt[slot]], endPoint(slot), 0);
+				}
+			}
+		} else if (high >= 0 && high < sections.length && low > 0 && low < lengths[high]) {
+			return new Location(sections[high], sections[high].getFirstEndPoint(), low);
+		}
+		throw new IllegalArgumentException("There is no location with the key " + key + ".");
+	}
+	
+	/**
+	 * Returns the shortest route from one location to another that obeys the switch rules, or null
+	 * if there isn't one. See {@link Track#shortestRoute(Location, Location)}.
+	 * 
+	 * @param from - The location that the route starts from.
+	 * @param to - The location that the route ends at.
+	 * @return The shortest route from the first location to the second, or null.
+	 * @throws NullPointerException If either location is null.
+	 */
+	public Route shortestRoute(Location from, Location to) throws NullPointerException {
+		return shortestRoute(from, to, null);
+	}
+	
+	/**
+	 * Returns the shortest route from one location to another that obeys the switch rules, or null
+	 * if there isn't one, using an A* search guided by the given landmarks. This settles far fewer
+	 * slots than an unguided search when the locations are far apart.
+	 * 
+	 * @param from - The location that the route starts from.
+	 * @param to - The location that the route ends at.
+	 * @param guide - Landmarks of this track, or null for an unguided search.
+	 * @return The shortest route from the first location to the second, or null.
+	 * @throws NullPointerException If either location is null.
+	 * @throws IllegalArgumentException If the landmarks are for a different track.
+	 */
+	public Route shortestRoute(Location from, Location to, Landmarks guide)
+			throws NullPointerException, IllegalArgumentException {
+		if (from == null || to == null) {
+			throw new NullPointerException("Locations may not be null.");
+		} else if (guide != null && guide.getTrack() != this) {
+			throw new IllegalArgumentException("The landmarks are for a different track.");
+		}
+		RouteSearch search = acquireSearch();
+		try {
+			return search.shortestRoute(from, to, guide);
+		} finally {
+			releaseSearch(search);
+		}
+	}
+	
+	/**
+	 * Takes an idle route search workspace for this track from the pool, or creates one if there
+	 * are none. It must be given back by {@link #releaseSearch(RouteSearch)} once the search is
+	 * done.
+	 */
+	RouteSearch acquireSearch() {
+		RouteSearch search = searches.poll();
+		if (search == null) {
+			return new RouteSearch(this);
+		}
+		pooledSearches.decrementAndGet();
+		return search;
+	}
+	
+	/**
+	 * Gives a route search workspace back to the pool, unless the pool is already full.
+	 */
+	void releaseSearch(RouteSearch search) {
+		if (pooledSearches.incrementAndGet() <= POOLED_SEARCHES) {
+			searches.offer(search);
+		} else {
+			pooledSearches.decrementAndGet();
+		}
+	}
+	
+	/**
+	 * Returns the given number of landmarks of this track (or as many as there are junctions, if
+	 * that is fewer). The landmarks are selected by {@link Landmarks#select(CompiledTrack, int)}
+	 * the first time they are asked for, and then reused.
+	 * 
+	 * @param count - The number of landmarks.
+	 * @return Landmarks of this track.
+	 * @throws IllegalArgumentException If count is negative.
+	 */
+	public Landmarks landmarks(int count) throws IllegalArgumentException {
+		return landmarks(count, null);
+	}
+	
+	/**
+	 * Returns the given number of landmarks of this track, as for landmarks(count). If they
+	 * haven't been made yet, and the given landmarks of an earlier version of the track are as
+	 * many and all still on it, their junctions are reused, so that only their distances need to
+	 * be computed, in parallel, by {@link Landmarks#of(CompiledTrack, Collection)}.
+	 */
+	Landmarks landmarks(int count, Landmarks previous) throws IllegalArgumentException {
+		Landmarks selected = landmarks;
+		int wanted = Math.min(count, junctionCount());
+		if (selected == null || selected.count() != wanted) {
+			List<Junction> reused = (previous == null || previous.count() != wanted) ? null
+					: reusable(previous);
+			selected = (reused == null) ? Landmarks.select(this, count)
+					: Landmarks.of(this, reused);
+			landmarks = selected;
+		}
+		return selected;
+	}
+	
+	/**
+	 * Returns the junctions of the given landmarks, or null if any of them is not on this track.
+	 */
+	private List<Junction> reusable(Landmarks previous) {
+		List<Junction> junctions = new ArrayList<>(previous.count());
+		for (int i = 0; i < previous.count(); i++) {
+			Junction junction = previous.getLandmark(i);
+			if (junctionId(junction) == NONE) {
+				return null;
+			}
+			junctions.add(junction);
+		}
+		return junctions;
+	}
+}
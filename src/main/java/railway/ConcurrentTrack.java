@@ -0,0 +1,423 @@
+package railway;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * A thread-safe version of {@link Track}, with the same operations and the same rules for which
+ * sections can be added.
+ * </p>
+ * 
+ * <p>
+ * Reads (contains, getTrackSection, getDegree, getJunctions and iterator) never block: they go
+ * straight to concurrent hash maps. Iterators are weakly consistent, so they reflect the track at
+ * some point during the iteration, and never throw ConcurrentModificationException.
+ * </p>
+ * 
+ * <p>
+ * Writers lock only the junctions that they change, using a fixed number of lock stripes, and
+ * share no other lock, so writers to unrelated parts of the track rarely block each other. Each
+ * stripe has a version, which is odd while a writer holds it, so compiling the track copies it
+ * without locking, and then checks that no writer was active meanwhile. Only if writers keep
+ * interfering does compiling lock every stripe, waiting for the writers in progress and holding
+ * off new ones. Either way, the compiled track is always a consistent snapshot.
+ * </p>
+ * 
+ * @author Addison Gourluck
+ */
+public final class ConcurrentTrack implements Iterable<Section> {
+	
+	// The number of junction lock stripes (a power of two)
+	private static final int STRIPES = 64;
+	
+	// The number of times to try compiling without locking, before locking out the writers
+	private static final int SNAPSHOT_ATTEMPTS = 4;
+	
+	private final Set<Section> sections = ConcurrentHashMap.newKeySet();
+	private final Map<JunctionBranch, Section> endPoints = new ConcurrentHashMap<>();
+	private final Map<Junction, Integer> degrees = new ConcurrentHashMap<>();
+	private final Set<Junction> junctions = Collections.unmodifiableSet(degrees.keySet());
+	
+	// Writers lock the stripes of the junctions they change, in increasing order
+	private final Stripe[] stripes = new Stripe[STRIPES];
+	
+	// The compiled form of the track, or null if the track has changed since it was compiled
+	private volatile CompiledTrack compiled;
+	
+	/*
+	 * invariant: each section in sections is mapped to by each of its end-points in endPoints, and
+	 * nothing else is in endPoints; degrees maps each junction to the number of its end-points in
+	 * endPoints
+	 */
+	
+	/**
+	 * A lock stripe, and its version, which is odd while the writer holding the stripe may be
+	 * changing the track. Only the holder of the lock changes the version.
+	 */
+	@SuppressWarnings("serial")
+	private static final class Stripe extends ReentrantLock {
+		
+		volatile long version = 0;
+	}
+	
+	/**
+	 * Creates a new track with no sections.
+	 */
+	public ConcurrentTrack() {
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe();
+		}
+	}
+	
+	/**
+	 * Adds the given section to the track, unless the addition of the section would result in the
+	 * track becoming invalid, as for {@link Track#addSection(Section)}.
+	 * 
+	 * @param section - The section to be added to the track.
+	 * @throws NullPointerException If section is null.
+	 * @throws InvalidTrackException If the track does not already contain an equivalent section,
+	 *         but it already contains a section that is connected to one of the same end-points as
+	 *         the given section.
+	 */
+	public void addSection(Section section) throws NullPointerException, InvalidTrackException {
+		TrackRules.checkNotNull(section);
+		int[] locked = lock(Collections.singleton(section));
+		try {
+			if (sections.contains(section)) {
+				return;
+			}
+			TrackRules.checkEndPoints(section, endPoints::get);
+			link(section);
+		} finally {
+			unlock(locked);
+		}
+	}
+	
+	/**
+	 * Adds all of the given sections to the track, unless the addition of any of them would result
+	 * in the track becoming invalid, in which case the track is not modified at all, as for
+	 * {@link Track#addSections(Collection)}. Other threads see the sections being added one at a
+	 * time.
+	 * 
+	 * @param batch - The sections to be added to the track.
+	 * @throws NullPointerException If batch is null, or contains a null section.
+	 * @throws InvalidTrackException If adding the sections would result in a junction being
+	 *         connected to more than one section on the same branch.
+	 */
+	public void addSections(Collection<Section> batch)
+			throws NullPointerException, InvalidTrackException {
+		for (Section section : batch) {
+			TrackRules.checkNotNull(section);
+		}
+		int[] locked = lock(batch);
+		try {
+			Set<Section> additions = TrackRules.checkBatch(batch, sections::contains,
+					endPoints::get);
+			for (Section section : additions) {
+				link(section);
+			}
+		} finally {
+			unlock(locked);
+		}
+	}
+	
+	/**
+	 * If the track contains a section that is equivalent to this one, then it is removed from the
+	 * layout of the railway, otherwise this method does not alter the railway layout in any way.
+	 * 
+	 * @param section - The section to be removed from the track.
+	 */
+	public void removeSection(Section section) {
+		if (section == null) {
+			return;
+		}
+		int[] locked = lock(Collections.singleton(section));
+		try {
+			if (sections.remove(section)) {
+				for (JunctionBranch endPoint : section.getEndPoints()) {
+					endPoints.remove(endPoint);
+					degrees.computeIfPresent(endPoint.getJunction(),
+							(junction, degree) -> degree == 1 ? null : degree - 1);
+				}
+				invalidate();
+			}
+		} finally {
+			unlock(locked);
+		}
+	}
+	
+	/**
+	 * Adds a section that has already been validated to the track and its indexes. The stripes of
+	 * its junctions must be locked.
+	 */
+	private void link(Section section) {
+		for (JunctionBranch endPoint : section.getEndPoints()) {
+			endPoints.put(endPoint, section);
+			degrees.merge(endPoint.getJunction(), 1, Integer::sum);
+		}
+		sections.add(section);
+		invalidate();
+	}
+	
+	/**
+	 * Discards the compiled track, without writing to it if it has already been discarded (so
+	 * that a run of writers doesn't keep taking its cache line from each other).
+	 */
+	private void invalidate() {
+		if (compiled != null) {
+			compiled = null;
+		}
+	}
+	
+	/**
+	 * Locks the stripes of the junctions of the given sections, in increasing order so that
+	 * writers can't deadlock, and makes their versions odd.
+	 * 
+	 * @return The stripes that were locked, to pass to unlock.
+	 */
+	private int[] lock(Collection<Section> batch) {
+		Set<Integer> needed = new TreeSet<>();
+		for (Section section : batch) {
+			for (Junction junction : section.getJunctions()) {
+				needed.add(stripe(junction));
+			}
+		}
+		int[] locked = new int[needed.size()];
+		int i = 0;
+		for (int stripe : needed) {
+			locked[i++] = stripe;
+		}
+		
+		for (i = 0; i < locked.length; i++) {
+			Stripe stripe = stripes[locked[i]];
+			stripe.lock();
+			stripe.version++;
+		}
+		return locked;
+	}
+	
+	/**
+	 * Makes the versions of the given stripes even again, and unlocks them.
+	 */
+	private void unlock(int[] locked) {
+		for (int i = locked.length - 1; i >= 0; i--) {
+			Stripe stripe = stripes[locked[i]];
+			stripe.version++;
+			stripe.unlock();
+		}
+	}
+	
+	/**
+	 * Locks every stripe, which waits for the writers in progress and holds off new ones.
+	 */
+	private void lockAll() {
+		for (Stripe stripe : stripes) {
+			stripe.lock();
+		}
+	}
+	
+	private void unlockAll() {
+		for (int i = STRIPES - 1; i >= 0; i--) {
+			stripes[i].unlock();
+		}
+	}
+	
+	/**
+	 * Reads the version of every stripe into versions, and returns false if any is odd (i.e. a
+	 * writer is active).
+	 */
+	private boolean readVersions(long[] versions) {
+		for (int i = 0; i < STRIPES; i++) {
+			versions[i] = stripes[i].version;
+			if ((versions[i] & 1) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns true if no stripe's version has changed since readVersions filled in versions.
+	 */
+	private boolean unchanged(long[] versions) {
+		for (int i = 0; i < STRIPES; i++) {
+			if (stripes[i].version != versions[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static int stripe(Junction junction) {
+		int hash = junction.hashCode();
+		return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+	}
+	
+	/**
+	 * Returns true if the track contains the given section and false otherwise.
+	 * 
+	 * @param section - The section whose presence in the track is to be checked.
+	 * @return True iff the track contains a section that is equivalent to the given parameter.
+	 */
+	public boolean contains(Section section) {
+		return section != null && sections.contains(section);
+	}
+	
+	/**
+	 * Returns an unmodifiable, live view of the junctions in the track that are connected to at
+	 * least one section of the track.
+	 * 
+	 * @return The set of all junctions in this track.
+	 */
+	public Set<Junction> getJunctions() {
+		return junctions;
+	}
+	
+	/**
+	 * Returns the number of branches of the given junction that are connected to sections of the
+	 * track. This is zero if the junction is not on the track, and at most three otherwise.
+	 * 
+	 * @param junction - The junction whose branches will be counted.
+	 * @return The number of sections connected to the junction, counting a loop section twice.
+	 */
+	public int getDegree(Junction junction) {
+		Integer degree = (junction == null) ? null : degrees.get(junction);
+		return (degree == null) ? 0 : degree;
+	}
+	
+	/**
+	 * If the track contains a section that is connected to the given junction on the given branch,
+	 * then it returns that section, otherwise it returns null.
+	 * 
+	 * @param junction - The junction for which the section will be returned.
+	 * @param branch - The branch of the junction for which the section will be returned.
+	 * @return the section of track that is connected to the junction on the given branch, if there
+	 *         is one, otherwise null
+	 */
+	public Section getTrackSection(Junction junction, Branch branch) {
+		if (junction == null || branch == null) {
+			return null;
+		}
+		if (junction.isInterned()) {
+			return endPoints.get(JunctionBranch.of(junction, branch));
+		}
+		return endPoints.get(new JunctionBranch(junction, branch));
+	}
+	
+	/**
+	 * Returns an immutable, array-based snapshot of the current layout of the track. The snapshot is
+	 * cached, so repeated calls return the same instance until the track is next modified. Compiling
+	 * only waits for writers if they keep changing the track while it is being copied.
+	 * 
+	 * @return The compiled form of this track.
+	 */
+	public CompiledTrack compile() {
+		CompiledTrack result = compiled;
+		if (result != null) {
+			return result;
+		}
+		
+		// Copy the track, and keep the copy if no writer was active before, during or after it
+		long[] versions = new long[STRIPES];
+		for (int attempt = 0; attempt < SNAPSHOT_ATTEMPTS; attempt++) {
+			if (readVersions(versions)) {
+				// Copied to a list first, as toArray(T[]) leaves nulls if the set shrinks meanwhile
+				result = new CompiledTrack(new ArrayList<>(sections));
+				if (unchanged(versions)) {
+					compiled = result;
+					// A writer that started since the check might have discarded the cache first
+					if (!unchanged(versions)) {
+						compiled = null;
+					}
+					return result;
+				}
+			}
+		}
+		
+		lockAll();
+		try {
+			result = compiled;
+			if (result == null) {
+				result = new CompiledTrack(sections);
+				compiled = result;
+			}
+			return result;
+		} finally {
+			unlockAll();
+		}
+	}
+	
+	/**
+	 * Returns the shortest route along the track from one location to another, or null if there is
+	 * no such route, as for {@link Track#shortestRoute(Location, Location)}.
+	 * 
+	 * @param from - The location that the route starts from.
+	 * @param to - The location that the route ends at.
+	 * @return The shortest route from the first location to the second, or null.
+	 * @throws NullPointerException If either location is null.
+	 */
+	public Route shortestRoute(Location from, Location to) throws NullPointerException {
+		return compile().shortestRoute(from, to);
+	}
+	
+	/**
+	 * Returns a weakly consistent iterator over the sections in the track, which does not support
+	 * removal.
+	 */
+	@Override
+	public Iterator<Section> iterator() {
+		return Collections.unmodifiableSet(sections).iterator();
+	}
+	
+	/**
+	 * Returns the same string representation as {@link Track#toString()}, of the sections seen by
+	 * iterator().
+	 */
+	@Override
+	public String toString() {
+		String separator = System.getProperty("line.separator");
+		StringBuilder stringy = new StringBuilder();
+		for (Section section : this) {
+			if (stringy.length() > 0) {
+				stringy.append(separator);
+			}
+			stringy.append(section);
+		}
+		return stringy.toString();
+	}
+	
+	/**
+	 * Determines whether this class is internally consistent (i.e. it satisfies its class
+	 * invariant). Writers are held off while the check is made.
+	 * 
+	 * This method is only intended for testing purposes.
+	 * 
+	 * @return true if this class is internally consistent, and false otherwise.
+	 */
+	public boolean checkInvariant() {
+		lockAll();
+		try {
+			Map<Junction, Integer> counted = new HashMap<>();
+			for (Section section : sections) {
+				for (JunctionBranch endPoint : section.getEndPoints()) {
+					if (endPoints.get(endPoint) != section) {
+						return false;
+					}
+					counted.merge(endPoint.getJunction(), 1, Integer::sum);
+				}
+			}
+			return endPoints.size() == 2 * sections.size() && counted.equals(degrees);
+		} finally {
+			unlockAll();
+		}
+	}
+}
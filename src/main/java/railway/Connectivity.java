@@ -0,0 +1,216 @@
+package railway;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * An index of the connected components of a track, which answers whether two junctions are
+ * connected without searching the track. See {@link Track#connected(Junction, Junction)}.
+ * </p>
+ * 
+ * <p>
+ * The components are held in a union-find forest (with path halving, and union by size), so adding
+ * a section takes near-constant time. Each root also lists the members of its component, with the
+ * smaller list appended to the larger on each union. Removing a section can split a component, so
+ * it only marks the section's component as stale; the next query rebuilds each stale component
+ * from its members, in time proportional to the size of the component, and leaves the rest of the
+ * forest alone.
+ * </p>
+ * 
+ * @author Addison Gourluck
+ */
+final class Connectivity {
+	
+	private static final Branch[] BRANCHES = Branch.values();
+	
+	private final Track track;
+	
+	// The node of every junction on the track (and of junctions that left it since the last rebuild)
+	private final Map<Junction, Node> nodes = new HashMap<>();
+	
+	// The roots of the components that may have been split since they were built
+	private final Set<Node> stale = new HashSet<>();
+	
+	// The number of components
+	private int count = 0;
+	
+	/**
+	 * A junction in the forest. Roots have a list of the members of their component; other nodes
+	 * have a parent in it.
+	 */
+	private static final class Node {
+		
+		final Junction junction;
+		Node parent = this;
+		List<Node> members = new ArrayList<>(1);
+		
+		Node(Junction junction) {
+			this.junction = junction;
+			members.add(this);
+		}
+	}
+	
+	/**
+	 * Creates an index of the components of the given track, as it is now. The track must tell the
+	 * index about each later change to its sections.
+	 * 
+	 * @param track - The track to index.
+	 */
+	Connectivity(Track track) {
+		this.track = track;
+		for (Section section : track) {
+			add(section);
+		}
+	}
+	
+	/**
+	 * Records that the given section has been added to the track.
+	 * 
+	 * @param section - The section that was added.
+	 */
+	void add(Section section) {
+		Junction[] ends = junctions(section);
+		union(node(ends[0]), node(ends[1]));
+	}
+	
+	/**
+	 * Records that the given section has been removed from the track, which marks its component to
+	 * be rebuilt.
+	 * 
+	 * @param section - The section that was removed.
+	 */
+	void remove(Section section) {
+		stale.add(find(nodes.get(junctions(section)[0])));
+	}
+	
+	/**
+	 * Returns true iff both junctions are on the track, and are connected by its sections.
+	 * 
+	 * @param a - A junction.
+	 * @param b - Another junction.
+	 * @return Whether the junctions are in the same component.
+	 */
+	boolean connected(Junction a, Junction b) {
+		rebuild();
+		Node nodeA = nodes.get(a);
+		Node nodeB = nodes.get(b);
+		return nodeA != null && nodeB != null && find(nodeA) == find(nodeB);
+	}
+	
+	/**
+	 * Returns the junction that represents the component of the given junction: the same junction
+	 * for every member of the component, until the track next changes.
+	 * 
+	 * @param junction - A junction.
+	 * @return The representative of the junction's component, or null if it is not on the track.
+	 */
+	Junction representative(Junction junction) {
+		rebuild();
+		Node node = nodes.get(junction);
+		return (node == null) ? null : find(node).junction;
+	}
+	
+	/**
+	 * Returns the junctions of each component of the track.
+	 * 
+	 * @return A list of the components, each an unmodifiable set of junctions.
+	 */
+	List<Set<Junction>> components() {
+		rebuild();
+		List<Set<Junction>> components = new ArrayList<>(count);
+		for (Node node : nodes.values()) {
+			if (node.parent == node) {
+				Set<Junction> component = new HashSet<>(node.members.size() * 2);
+				for (Node member : node.members) {
+					component.add(member.junction);
+				}
+				components.add(Collections.unmodifiableSet(component));
+			}
+		}
+		return components;
+	}
+	
+	/**
+	 * Rebuilds each stale component from the sections of its members that are still on the track.
+	 * Every section at a junction of the component was in the component before it went stale, so
+	 * the rebuild never needs to look outside it.
+	 */
+	private void rebuild() {
+		if (stale.isEmpty()) {
+			return;
+		}
+		List<Node> roots = new ArrayList<>(stale);
+		stale.clear();
+		for (Node root : roots) {
+			count--;
+			for (Node member : root.members) {
+				nodes.remove(member.junction);
+			}
+			for (Node member : root.members) {
+				for (Branch branch : BRANCHES) {
+					Section section = track.getTrackSection(member.junction, branch);
+					if (section != null) {
+						Junction[] ends = junctions(section);
+						union(node(ends[0]), node(ends[1]));
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the node of the given junction, creating a new component for it if it has none.
+	 */
+	private Node node(Junction junction) {
+		Node node = nodes.get(junction);
+		if (node == null) {
+			node = new Node(junction);
+			nodes.put(junction, node);
+			count++;
+		}
+		return node;
+	}
+	
+	private static Node find(Node node) {
+		while (node.parent != node) {
+			node.parent = node.parent.parent;
+			node = node.parent;
+		}
+		return node;
+	}
+	
+	/**
+	 * Merges the components of the two nodes, keeping the larger root (and marking the result stale
+	 * if either was).
+	 */
+	private void union(Node a, Node b) {
+		Node rootA = find(a);
+		Node rootB = find(b);
+		if (rootA == rootB) {
+			return;
+		}
+		if (rootA.members.size() < rootB.members.size()) {
+			Node swap = rootA;
+			rootA = rootB;
+			rootB = swap;
+		}
+		rootB.parent = rootA;
+		rootA.members.addAll(rootB.members);
+		rootB.members = null;
+		if (stale.remove(rootB)) {
+			stale.add(rootA);
+		}
+		count--;
+	}
+	
+	private static Junction[] junctions(Section section) {
+		return new Junction[] { section.getFirstEndPoint().getJunction(),
+				section.getSecondEndPoint().getJunction() };
+	}
+}
@@ -0,0 +1,194 @@
+package railway;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>
+ * An immutable matrix of the length of the shortest route between every pair of junctions on a
+ * track, where routes obey the switch rules (see {@link Track#shortestRoute(Location, Location)}).
+ * </p>
+ * 
+ * <p>
+ * The matrix is computed by one search from each junction, with the searches spread across a
+ * ForkJoinPool. Distances are stored as a flat array of ints, indexed by from * size + to, using
+ * the junction numbers of the compiled track. Small matrices are kept on the heap; larger ones are
+ * kept in direct (off-heap) buffers, so that they don't add to the garbage collector's work.
+ * </p>
+ * 
+ * @author Addison Gourluck
+ */
+public final class DistanceMatrix {
+	
+	/** The distance between junctions that have no route between them. */
+	public static final int UNREACHABLE = Landmarks.UNREACHABLE;
+	
+	// The largest matrix, in entries, that is kept on the heap
+	static final long HEAP_LIMIT = 1 << 22;
+	
+	// The largest number of entries held in any one direct buffer
+	private static final int BUFFER_LIMIT = 1 << 28;
+	
+	private final CompiledTrack track;
+	private final int size;
+	
+	// The distances, either on the heap, or in direct buffers of rowsPerBuffer rows each
+	private final int[] onHeap;
+	private final IntBuffer[] offHeap;
+	private final int rowsPerBuffer;
+	
+	private DistanceMatrix(CompiledTrack track) {
+		this.track = track;
+		size = track.junctionCount();
+		long entries = (long) size * size;
+		if (entries <= HEAP_LIMIT) {
+			onHeap = new int[(int) entries];
+			offHeap = null;
+			rowsPerBuffer = size;
+		} else {
+			onHeap = null;
+			rowsPerBuffer = Math.max(1, BUFFER_LIMIT / size);
+			offHeap = new IntBuffer[(size + rowsPerBuffer - 1) / rowsPerBuffer];
+			for (int i = 0; i < offHeap.length; i++) {
+				int rows = Math.min(rowsPerBuffer, size - i * rowsPerBuffer);
+				offHeap[i] = ByteBuffer.allocateDirect(rows * size * Integer.BYTES)
+						.order(ByteOrder.nativeOrder()).asIntBuffer();
+			}
+		}
+	}
+	
+	/**
+	 * Computes the distance matrix of the given track, using the common ForkJoinPool.
+	 * 
+	 * @param track - The track to compute the distances of.
+	 * @return The distance matrix of the track as it is now.
+	 */
+	public static DistanceMatrix compute(Track track) {
+		return compute(track.compile(), ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Computes the distance matrix of the given track, using the given pool.
+	 * 
+	 * @param track - The track to compute the distances of.
+	 * @param pool - The pool to run the searches in.
+	 * @return The distance matrix of the track.
+	 */
+	public static DistanceMatrix compute(CompiledTrack track, ForkJoinPool pool) {
+		DistanceMatrix matrix = new DistanceMatrix(track);
+		pool.invoke(matrix.new Rows(0, matrix.size));
+		return matrix;
+	}
+	
+	/**
+	 * Computes a range of rows of the matrix, splitting it in half until it is a single row.
+	 */
+	@SuppressWarnings("serial")
+	private final class Rows extends RecursiveAction {
+		
+		private final int from;
+		private final int to;
+		
+		Rows(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Rows(from, middle), new Rows(middle, to));
+			} else if (to > from) {
+				int[] row = new int[size];
+				RouteSearch search = track.acquireSearch();
+				try {
+					search.distancesFrom(from, row);
+				} finally {
+					track.releaseSearch(search);
+				}
+				store(from, row);
+			}
+		}
+	}
+	
+	/**
+	 * Copies a computed row into the matrix.
+	 */
+	private void store(int from, int[] row) {
+		if (onHeap != null) {
+			System.arraycopy(row, 0, onHeap, from * size, size);
+		} else {
+			IntBuffer buffer = offHeap[from / rowsPerBuffer].duplicate();
+			buffer.position((from % rowsPerBuffer) * size);
+			buffer.put(row);
+		}
+	}
+	
+	/**
+	 * Returns the compiled track that the junction numbers of this matrix belong to.
+	 * 
+	 * @return The track of this matrix.
+	 */
+	public CompiledTrack getTrack() {
+		return track;
+	}
+	
+	/**
+	 * Returns the number of rows (and columns) of the matrix, which is the number of junctions.
+	 * 
+	 * @return The number of junctions on the track.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns true if the distances are stored off the heap.
+	 * 
+	 * @return Whether or not the matrix is held in direct buffers.
+	 */
+	public boolean isOffHeap() {
+		return offHeap != null;
+	}
+	
+	/**
+	 * Returns the length of the shortest route from one junction to another, or UNREACHABLE if
+	 * there is none.
+	 * 
+	 * @param from - The junction that the route starts from.
+	 * @param to - The junction that the route ends at.
+	 * @return The distance between the junctions, in meters.
+	 * @throws IllegalArgumentException If either junction isn't on the track.
+	 */
+	public int distance(Junction from, Junction to) throws IllegalArgumentException {
+		int a = track.junctionId(from);
+		int b = track.junctionId(to);
+		if (a == CompiledTrack.NONE || b == CompiledTrack.NONE) {
+			throw new IllegalArgumentException("Both junctions must be on the track.");
+		}
+		return distance(a, b);
+	}
+	
+	/**
+	 * Returns the length of the shortest route between the junctions with the given numbers, or
+	 * UNREACHABLE if there is none.
+	 * 
+	 * @param from - The number of the junction that the route starts from.
+	 * @param to - The number of the junction that the route ends at.
+	 * @return The distance between the junctions, in meters.
+	 * @throws IndexOutOfBoundsException If either number isn't a junction of the track.
+	 */
+	public int distance(int from, int to) throws IndexOutOfBoundsException {
+		if (from < 0 || from >= size || to < 0 || to >= size) {
+			throw new IndexOutOfBoundsException("No such junction.");
+		}
+		if (onHeap != null) {
+			return onHeap[from * size + to];
+		}
+		return offHeap[from / rowsPerBuffer].get((from % rowsPerBuffer) * size + to);
+	}
+}
@@ -1,5 +1,11 @@
 package railway;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * <p>
  * An immutable class representing a junction on a railway track.
@@ -11,11 +17,30 @@ package railway;
  * type. (I.e. a junction may have not have two branches of type Branch.FACING.)
  * </p>
  * 
+ * <p>
+ * Junctions obtained from {@link #of(String)} are interned, so that there is only ever one such
+ * instance for each identifier, and each interned junction holds the canonical end-points for its
+ * three branches (see {@link JunctionBranch#of(Junction, Branch)}). The interning table only
+ * holds interned junctions weakly: once nothing else refers to a junction (or its canonical
+ * end-points), it is released, and a later call to of(String) creates a new one.
+ * </p>
+ * 
  * @author Addison Gourluck
  */
 public class Junction {
 	
+	// Every interned junction that is still in use, by identifier
+	private static final ConcurrentMap<String, InternedReference> interned =
+			new ConcurrentHashMap<>();
+	
+	// The references to interned junctions that have been released, to remove from the table
+	private static final ReferenceQueue<Junction> released = new ReferenceQueue<>();
+	
 	private final String junctionIdentifier;
+	private final int hash;
+	
+	// The canonical end-point for each branch, indexed by ordinal; null if not interned
+	private final JunctionBranch[] endPoints;
 	
 	/**
 	 * Creates a new junction with the given identifier.
@@ -28,7 +53,90 @@ public class Junction {
 			throw new NullPointerException("The Junction Identifier cannot be null.");
 		}
 		junctionIdentifier = jId;
+		hash = jId.hashCode();
+		endPoints = null;
 	}
+	
+	/**
+	 * Creates the interned junction for the given identifier, along with its canonical end-points.
+	 * 
+	 * @param jId - The identifier of this Junction, which is not null.
+	 */
+	private Junction(String jId, Branch[] branches) {
+		junctionIdentifier = jId;
+		hash = jId.hashCode();
+		endPoints = new JunctionBranch[branches.length];
+		for (Branch branch : branches) {
+			endPoints[branch.ordinal()] = new JunctionBranch(this, branch, true);
+		}
+	}
+	
+	/**
+	 * A weak reference to an interned junction, which remembers its identifier so that it can be
+	 * removed from the table once the junction has been released.
+	 */
+	private static final class InternedReference extends WeakReference<Junction> {
+		
+		final String jId;
+		
+		InternedReference(Junction junction) {
+			super(junction, released);
+			jId = junction.junctionIdentifier;
+		}
+	}
+	
+	/**
+	 * Returns the interned junction with the given identifier, creating it if there isn't one in
+	 * use. Repeated calls with equal identifiers return the same instance for as long as it is
+	 * referenced.
+	 * 
+	 * @param jId - The identifier of the Junction.
+	 * @return The interned junction with the given identifier.
+	 * @throws NullPointerException If jId is null.
+	 */
+	public static Junction of(String jId) throws NullPointerException {
+		if (jId == null) {
+			throw new NullPointerException("The Junction Identifier cannot be null.");
+		}
+		for (Reference<?> reference; (reference = released.poll()) != null;) {
+			interned.remove(((InternedReference) reference).jId, reference);
+		}
+		while (true) {
+			InternedReference reference = interned.get(jId);
+			Junction junction = (reference == null) ? null : reference.get();
+			if (junction != null) {
+				return junction;
+			}
+			junction = new Junction(jId, Branch.values());
+			InternedReference replacement = new InternedReference(junction);
+			if ((reference == null) ? interned.putIfAbsent(jId, replacement) == null
+					: interned.replace(jId, reference, replacement)) {
+				return junction;
+			}
+		}
+	}
+	
+	/**
+	 * Returns true if this junction was obtained from {@link #of(String)}.
+	 * 
+	 * @return Whether or not this is the interned instance for its identifier.
+	 */
+	boolean isInterned() {
+		return endPoints != null;
+	}
+	
+	/**
+	 * Returns the canonical end-point for the given branch of this junction, interning this
+	 * junction first if it isn't already.
+	 * 
+	 * @param branch - The branch of the end-point, which is not null.
+	 * @return The canonical end-point for the given branch of the interned equivalent of this.
+	 */
+	JunctionBranch endPoint(Branch branch) {
+		Junction canonical = isInterned() ? this : of(junctionIdentifier);
+		return canonical.endPoints[branch.ordinal()];
+	}
+	
 	/**
 	 * Returns the identifier of the junction.
 	 * 
@@ -58,12 +166,16 @@ public class Junction {
 		}
 		
 		Junction other = (Junction) obj;
-		return (junctionIdentifier.equals(other.junctionIdentifier));
+		if (isInterned() && other.isInterned()) {
+			// There is only one interned junction per identifier
+			return false;
+		}
+		return (hash == other.hash && junctionIdentifier.equals(other.junctionIdentifier));
 	}
 	
 	@Override
 	public int hashCode() {
-		return junctionIdentifier.hashCode();
+		return hash;
 	}
 	
 	/**
@@ -5,12 +5,18 @@ package railway;
  * An immutable class used to identify a junction and one of its branches on a railway track.
  * </p>
  * 
+ * <p>
+ * {@link #of(Junction, Branch)} returns canonical instances, of which there is exactly one for each
+ * interned junction and branch, so canonical end-points can be compared by reference.
+ * </p>
+ * 
  * @author Addison Gourluck
  */
 public class JunctionBranch {
 	
 	private final Junction junction;
 	private final Branch branch;
+	private final boolean canonical;
 	
 	/*
 	 * invariant: junction!= null && branch != null
@@ -29,6 +35,37 @@ public class JunctionBranch {
 		}
 		this.junction = junction;
 		this.branch = branch;
+		this.canonical = false;
+	}
+	
+	/**
+	 * Creates one of the canonical end-points held by an interned junction.
+	 * 
+	 * @param junction - The interned Junction of this pair
+	 * @param branch - The Branch of this pair
+	 * @param canonical - Always true
+	 */
+	JunctionBranch(Junction junction, Branch branch, boolean canonical) {
+		this.junction = junction;
+		this.branch = branch;
+		this.canonical = canonical;
+	}
+	
+	/**
+	 * Returns the canonical instance representing the given junction and its branch. The junction
+	 * is interned (see {@link Junction#of(String)}) if it isn't already, and the returned end-point
+	 * has the interned junction as its junction.
+	 * 
+	 * @param junction - The Junction of this pair
+	 * @param branch - The Branch of this pair
+	 * @return The canonical end-point equivalent to new JunctionBranch(junction, branch)
+	 * @throws NullPointerException If either parameter is null
+	 */
+	public static JunctionBranch of(Junction junction, Branch branch) throws NullPointerException {
+		if (junction == null || branch == null) {
+			throw new NullPointerException("The method paramters cannot be null.");
+		}
+		return junction.endPoint(branch);
 	}
 	
 	/**
@@ -60,16 +97,31 @@ public class JunctionBranch {
 		return String.format("(%s, %s)", junction, branch);
 	}
 	
+	/**
+	 * Orders end-points by their junction identifiers, then by their branches. Equivalent
+	 * end-points compare as equal.
+	 */
+	static int compare(JunctionBranch a, JunctionBranch b) {
+		int result = a.getJunction().getJunctionId().compareTo(b.getJunction().getJunctionId());
+		return (result != 0) ? result : a.getBranch().compareTo(b.getBranch());
+	}
+	
 	/**
 	 * Returns true if and only if the given object is an instance of the class
 	 * JunctionBranch, with an equivalent junction and branch to this one.
 	 */
 	@Override
 	public boolean equals(Object object) {
-		if (!(object instanceof JunctionBranch)) {
+		if (this == object) {
+			return true;
+		} else if (!(object instanceof JunctionBranch)) {
 			return false;
 		}
 		JunctionBranch other = (JunctionBranch) object; // the pair to compare
+		if (canonical && other.canonical) {
+			// There is only one canonical instance per junction and branch
+			return false;
+		}
 		return (junction.equals(other.junction) && branch.equals(other.branch));
 	}
 	
@@ -0,0 +1,217 @@
+package railway;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.stream.IntStream;
+
+/**
+ * <p>
+ * An immutable distance oracle for a compiled track, used to guide route searches towards their
+ * destination (the ALT technique: A*, landmarks and the triangle inequality).
+ * </p>
+ * 
+ * <p>
+ * A small number of junctions are chosen as landmarks, and the distance from each landmark to every
+ * junction is precomputed, ignoring the switch rules. For any junctions a and b and landmark l,
+ * |d(l, a) - d(l, b)| is then a lower bound on the distance between a and b, and since ignoring the
+ * switch rules can only make routes shorter, it is also a lower bound on the length of any route
+ * from a to b.
+ * </p>
+ * 
+ * @author Addison Gourluck
+ */
+public final class Landmarks {
+	
+	/** The lower bound between junctions that are not connected to each other at all. */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+	
+	private final CompiledTrack track;
+	private final int[] landmarks;
+	
+	// The distance from each landmark to each junction, indexed by junction * count + landmark
+	private final int[] distances;
+	
+	private Landmarks(CompiledTrack track, int[] landmarks, int[] distances) {
+		this.track = track;
+		this.landmarks = landmarks;
+		this.distances = distances;
+	}
+	
+	/**
+	 * <p>
+	 * Chooses up to the given number of landmarks for the track, and precomputes their distances.
+	 * </p>
+	 * 
+	 * <p>
+	 * Landmarks are chosen greedily, each being the junction furthest from all of the landmarks
+	 * chosen before it, so that each part of the track (and each unconnected part of it) has a
+	 * landmark near its edge. Each choice depends on the distances from the previous landmarks, so
+	 * the landmarks are computed one at a time; use {@link #of(CompiledTrack, Collection)} to
+	 * compute the distances of known landmarks in parallel.
+	 * </p>
+	 * 
+	 * @param track - The track to choose landmarks for.
+	 * @param count - The maximum number of landmarks to choose.
+	 * @return The landmarks of the track.
+	 * @throws IllegalArgumentException If count is negative.
+	 */
+	public static Landmarks select(CompiledTrack track, int count) throws IllegalArgumentException {
+		if (count < 0) {
+			throw new IllegalArgumentException("The number of landmarks cannot be negative.");
+		}
+		count = Math.min(count, track.junctionCount());
+		int[] chosen = new int[count];
+		int[] distances = new int[track.junctionCount() * count];
+		
+		// The distance from each junction to its nearest landmark so far
+		int[] nearest = new int[track.junctionCount()];
+		Arrays.fill(nearest, UNREACHABLE);
+		
+		int[] column = new int[track.junctionCount()];
+		for (int landmark = 0; landmark < count; landmark++) {
+			int next = 0;
+			for (int junction = 1; junction < nearest.length; junction++) {
+				if (nearest[junction] > nearest[next]) {
+					next = junction;
+				}
+			}
+			
+			chosen[landmark] = next;
+			sweep(track, next, column);
+			for (int junction = 0; junction < column.length; junction++) {
+				distances[junction * count + landmark] = column[junction];
+				nearest[junction] = Math.min(nearest[junction], column[junction]);
+			}
+		}
+		return new Landmarks(track, chosen, distances);
+	}
+	
+	/**
+	 * Precomputes the distances of the given landmarks, in parallel.
+	 * 
+	 * @param track - The track that the landmarks are on.
+	 * @param junctions - The junctions to use as landmarks.
+	 * @return The landmarks of the track.
+	 * @throws IllegalArgumentException If any of the junctions are not on the track.
+	 */
+	public static Landmarks of(CompiledTrack track, Collection<Junction> junctions)
+			throws IllegalArgumentException {
+		int[] chosen = new int[junctions.size()];
+		int i = 0;
+		for (Junction junction : junctions) {
+			chosen[i] = track.junctionId(junction);
+			if (chosen[i++] == CompiledTrack.NONE) {
+				throw new IllegalArgumentException("The landmark " + junction
+						+ " is not on the track.");
+			}
+		}
+		return of(track, chosen);
+	}
+	
+	private static Landmarks of(CompiledTrack track, int[] chosen) {
+		int count = chosen.length;
+		int[] distances = new int[track.junctionCount() * count];
+		IntStream.range(0, count).parallel().forEach(landmark -> {
+			int[] column = new int[track.junctionCount()];
+			sweep(track, chosen[landmark], column);
+			for (int junction = 0; junction < column.length; junction++) {
+				distances[junction * count + landmark] = column[junction];
+			}
+		});
+		return new Landmarks(track, chosen, distances);
+	}
+	
+	/**
+	 * Computes the distance from the source junction to every junction, ignoring the switch rules.
+	 * Junctions that can't be reached are given the distance UNREACHABLE.
+	 */
+	private static void sweep(CompiledTrack track, int source, int[] distance) {
+		Arrays.fill(distance, UNREACHABLE);
+		LongHeap heap = new LongHeap();
+		distance[source] = 0;
+		heap.push(LongHeap.entry(0, source));
+		while (!heap.isEmpty()) {
+			long entry = heap.pop();
+			int junction = LongHeap.value(entry);
+			int dist = LongHeap.priority(entry);
+			if (dist > distance[junction]) {
+				continue;
+			}
+			for (Branch branch : Branch.values()) {
+				int slot = CompiledTrack.slot(junction, branch);
+				int section = track.sectionAt(slot);
+				if (section == CompiledTrack.NONE) {
+					continue;
+				}
+				int other = CompiledTrack.junctionOf(track.opposite(slot));
+				int candidate = dist + track.length(section);
+				if (candidate < distance[other]) {
+					distance[other] = candidate;
+					heap.push(LongHeap.entry(candidate, other));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the track that these landmarks are for.
+	 * 
+	 * @return The compiled track of the landmarks.
+	 */
+	public CompiledTrack getTrack() {
+		return track;
+	}
+	
+	/**
+	 * Returns the number of landmarks.
+	 * 
+	 * @return The number of landmarks.
+	 */
+	public int count() {
+		return landmarks.length;
+	}
+	
+	/**
+	 * Returns the landmark with the given index.
+	 * 
+	 * @param index - The index of a landmark, between zero and count() - 1.
+	 * @return The junction used as that landmark.
+	 */
+	public Junction getLandmark(int index) {
+		return track.junction(landmarks[index]);
+	}
+	
+	/**
+	 * Returns a lower bound on the length of any route between the given junctions. This is
+	 * UNREACHABLE if they are not connected to each other, and zero if either is not on the track.
+	 * 
+	 * @param from - One junction.
+	 * @param to - The other junction.
+	 * @return A lower bound on the distance between the junctions.
+	 */
+	public int lowerBound(Junction from, Junction to) {
+		int a = track.junctionId(from);
+		int b = track.junctionId(to);
+		return (a == CompiledTrack.NONE || b == CompiledTrack.NONE) ? 0 : lowerBound(a, b);
+	}
+	
+	/**
+	 * Returns a lower bound on the distance between the junctions with the given numbers.
+	 */
+	int lowerBound(int from, int to) {
+		int count = landmarks.length;
+		int bound = 0;
+		for (int i = from * count, j = to * count, end = i + count; i < end; i++, j++) {
+			int a = distances[i];
+			int b = distances[j];
+			if (a == UNREACHABLE || b == UNREACHABLE) {
+				if (a != b) {
+					return UNREACHABLE;
+				}
+			} else if (Math.abs(a - b) > bound) {
+				bound = Math.abs(a - b);
+			}
+		}
+		return bound;
+	}
+}
@@ -33,6 +33,17 @@ public class Location {
 	private final int offset;
 	private final JunctionBranch endPoint;
 	
+	// The canonical description of the location: its offset from the lesser end-point of its
+	// section (see JunctionBranch.compare), which is zero for a location at a junction
+	private final int canonicalOffset;
+	private final int hash;
+	
+	/*
+	 * invariant: section != null && endPoint != null && 0 <= offset < section.getLength() &&
+	 * endPoint is an end-point of section && canonicalOffset is the offset from the lesser
+	 * end-point of section
+	 */
+	
 	/**
 	 * Creates a new location that lies on the given section at a distance of offset meters from
 	 * endPoint.getJunction() along endPoint.getBranch().
@@ -62,6 +73,35 @@ public class Location {
 		this.section = section;
 		this.endPoint = endPoint;
 		this.offset = offset;
+		
+		if (offset == 0) {
+			canonicalOffset = 0;
+			hash = endPoint.getJunction().hashCode();
+		} else {
+			canonicalOffset = isLesserEndPoint(section, endPoint) ? offset
+					: section.getLength() - offset;
+			hash = 41 * section.hashCode() + canonicalOffset;
+		}
+	}
+	
+	/**
+	 * Returns true if the given end-point of the section is the lesser of its two end-points.
+	 */
+	private static boolean isLesserEndPoint(Section section, JunctionBranch endPoint) {
+		return section.getLesserEndPoint().equals(endPoint);
+	}
+	
+	/**
+	 * Returns the distance of this location from the lesser end-point of this.getSection(), which
+	 * is the same for all equivalent descriptions of a location that is not at a junction.
+	 * 
+	 * @return The distance from the lesser end-point, between zero and the length of the section.
+	 */
+	int offsetFromLesserEndPoint() {
+		if (offset == 0) {
+			return isLesserEndPoint(section, endPoint) ? 0 : section.getLength();
+		}
+		return canonicalOffset;
 	}
 	
 	/**
@@ -231,25 +271,25 @@ public class Location {
 			return false;
 		}
 		
+		// Both locations are in canonical form, so equivalent locations have the same offset and,
+		// unless they are at a junction, the same section
 		Location other = (Location) obj;
-		if (!section.equals(other.section)) {
-			// The locations are on different sections
-			if (offset != other.offset ||
-					!endPoint.getJunction().equals(other.getEndPoint().getJunction())) {
-				// For the locations to be equal, both must be offset by 0 from the same endPoint
-				return false;
-			}
+		if (hash != other.hash || canonicalOffset != other.canonicalOffset) {
+			return false;
+		} else if (canonicalOffset == 0) {
+			return endPoint.getJunction().equals(other.endPoint.getJunction());
 		}
-		return true;
+		return section.equals(other.section);
 	}
 	
+	/**
+	 * Returns a hash code that is the same for all equivalent locations, however they are
+	 * described: the hash code of the junction for a location at a junction, and otherwise a
+	 * combination of the section and the offset from its lesser end-point.
+	 */
 	@Override
 	public int hashCode() {
-		final int prime = 41;
-		int result = prime + endPoint.getJunction().hashCode();
-		result = prime * result + offset;
-		result = prime * result + section.hashCode();
-		return result;
+		return hash;
 	}
 	
 	/**
@@ -261,7 +301,11 @@ public class Location {
 	 * @return True if this class is internally consistent, and false otherwise.
 	 */
 	public boolean checkInvariant() {
-		return (section != null && endPoint != null && offset > 0 && offset < section.getLength()
-				&& section.getEndPoints().contains(endPoint));
+		if (section == null || endPoint == null || offset < 0 || offset >= section.getLength()
+				|| !section.getEndPoints().contains(endPoint)) {
+			return false;
+		}
+		return canonicalOffset == ((offset == 0 || isLesserEndPoint(section, endPoint)) ? offset
+				: section.getLength() - offset);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package railway;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A binary min-heap of primitive longs, used as the priority queue of the track's searches.
+ * </p>
+ * 
+ * <p>
+ * Searches pack a priority into the upper half of each long and a slot or junction number into the
+ * lower half, so that entries are ordered by priority without boxing. The heap only allocates when
+ * it needs to grow.
+ * </p>
+ * 
+ * @author Addison Gourluck
+ */
+final class LongHeap {
+	
+	private long[] heap = new long[64];
+	private int size = 0;
+	
+	/**
+	 * Returns the entry for the given non-negative priority and value.
+	 */
+	static long entry(int priority, int value) {
+		return ((long) priority << 32) | value;
+	}
+	
+	/**
+	 * Returns the priority of the given entry.
+	 */
+	static int priority(long entry) {
+		return (int) (entry >>> 32);
+	}
+	
+	/**
+	 * Returns the value of the given entry.
+	 */
+	static int value(long entry) {
+		return (int) entry;
+	}
+	
+	boolean isEmpty() {
+		return size == 0;
+	}
+	
+	void clear() {
+		size = 0;
+	}
+	
+	void push(long entry) {
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, size * 2);
+		}
+		int i = size++;
+		while (i > 0) {
+			int up = (i - 1) >>> 1;
+			if (heap[up] <= entry) {
+				break;
+			}
+			heap[i] = heap[up];
+			i = up;
+		}
+		heap[i] = entry;
+	}
+	
+	long pop() {
+		long top = heap[0];
+		long last = heap[--size];
+		int i = 0;
+		int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			if (child + 1 < size && heap[child + 1] < heap[child]) {
+				child++;
+			}
+			if (last <= heap[child]) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = last;
+		return top;
+	}
+}
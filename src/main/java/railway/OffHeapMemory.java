@@ -0,0 +1,93 @@
+package railway;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <p>
+ * A fixed-size block of zeroed memory outside the Java heap, addressed by a long byte index, so
+ * that it can be larger than a single ByteBuffer. The memory is split into direct buffers of 64 MB
+ * each; it is released when the block is garbage collected.
+ * </p>
+ * 
+ * <p>
+ * Values must be aligned to their own size (so that none of them straddle two buffers), and
+ * indexes are not checked beyond the checks made by the buffers themselves.
+ * </p>
+ * 
+ * @author Addison Gourluck
+ */
+final class OffHeapMemory {
+	
+	private static final int PAGE_SHIFT = 26;
+	private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+	
+	private final ByteBuffer[] pages;
+	private final long size;
+	
+	/**
+	 * Allocates a zeroed block of the given number of bytes.
+	 * 
+	 * @param size - The size of the block, in bytes.
+	 */
+	OffHeapMemory(long size) {
+		this.size = size;
+		pages = new ByteBuffer[(int) ((size + PAGE_SIZE - 1) >>> PAGE_SHIFT)];
+		for (int i = 0; i < pages.length; i++) {
+			int pageSize = (int) Math.min(PAGE_SIZE, size - ((long) i << PAGE_SHIFT));
+			pages[i] = ByteBuffer.allocateDirect(pageSize).order(ByteOrder.nativeOrder());
+		}
+	}
+	
+	/**
+	 * Returns the size of the block.
+	 * 
+	 * @return The number of bytes in the block.
+	 */
+	long size() {
+		return size;
+	}
+	
+	byte getByte(long index) {
+		return pages[(int) (index >>> PAGE_SHIFT)].get((int) (index & PAGE_MASK));
+	}
+	
+	void putByte(long index, byte value) {
+		pages[(int) (index >>> PAGE_SHIFT)].put((int) (index & PAGE_MASK), value);
+	}
+	
+	int getInt(long index) {
+		return pages[(int) (index >>> PAGE_SHIFT)].getInt((int) (index & PAGE_MASK));
+	}
+	
+	void putInt(long index, int value) {
+		pages[(int) (index >>> PAGE_SHIFT)].putInt((int) (index & PAGE_MASK), value);
+	}
+	
+	long getLong(long index) {
+		return pages[(int) (index >>> PAGE_SHIFT)].getLong((int) (index & PAGE_MASK));
+	}
+	
+	void putLong(long index, long value) {
+		pages[(int) (index >>> PAGE_SHIFT)].putLong((int) (index & PAGE_MASK), value);
+	}
+	
+	/**
+	 * Returns a new block of the given size, holding a copy of the first bytes of this block (as
+	 * many as fit).
+	 * 
+	 * @param newSize - The size of the new block, in bytes.
+	 * @return The new block.
+	 */
+	OffHeapMemory resize(long newSize) {
+		OffHeapMemory copy = new OffHeapMemory(newSize);
+		for (int i = 0; i < pages.length && i < copy.pages.length; i++) {
+			ByteBuffer from = pages[i].duplicate();
+			ByteBuffer to = copy.pages[i].duplicate();
+			from.limit(Math.min(from.capacity(), to.capacity()));
+			to.put(from);
+		}
+		return copy;
+	}
+}
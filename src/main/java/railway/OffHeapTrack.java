@@ -0,0 +1,554 @@
+package railway;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>
+ * A version of {@link Track} that keeps its layout outside the Java heap, for very large networks,
+ * with the same rules for which sections can be added. However many sections it holds, it only
+ * uses a constant amount of heap, so garbage collection pauses don't grow with the size of the
+ * network.
+ * </p>
+ * 
+ * <p>
+ * Each junction is numbered, and its identifier is stored once, in UTF-8. Each section is stored
+ * as a fixed-width record of 16 bytes (the numbers of its two junctions, its length, and the
+ * ordinals of its two branches), and an open-addressing hash table maps each end-point (junction
+ * number * 3 + branch ordinal) to the record of the section that occupies it. Another maps the
+ * hashes of junction identifiers to junction numbers. Section, Junction and JunctionBranch objects
+ * are only created when they are returned, and are not kept.
+ * </p>
+ * 
+ * <p>
+ * Junctions keep their numbers (and their identifiers stay stored) after their last section is
+ * removed. The track is not thread-safe.
+ * </p>
+ * 
+ * @author Addison Gourluck
+ */
+public final class OffHeapTrack implements Iterable<Section> {
+	
+	private static final Branch[] BRANCHES = Branch.values();
+	private static final int NONE = -1;
+	
+	// The layout of a section record
+	private static final int RECORD_SIZE = 16;
+	private static final int FIRST_JUNCTION = 0;
+	private static final int SECOND_JUNCTION = 4;
+	private static final int LENGTH = 8;
+	private static final int FIRST_BRANCH = 12;
+	private static final int SECOND_BRANCH = 13;
+	
+	// The most junctions there can be, so that every end-point has an int key
+	private static final int MAX_JUNCTIONS = Integer.MAX_VALUE / 3;
+	
+	// Junction identifiers, each an int length followed by its bytes, padded to a multiple of 4
+	private OffHeapMemory names = new OffHeapMemory(1 << 14);
+	private long namesUsed = 0;
+	
+	// The offset in names of each junction's identifier, by junction number
+	private OffHeapMemory junctions = new OffHeapMemory(8 << 10);
+	private int junctionCount = 0;
+	
+	// An open-addressing table of junctions: (identifier hash << 32 | junction number + 1), or 0
+	private OffHeapMemory junctionTable = new OffHeapMemory(8 << 11);
+	private long junctionMask = (1 << 11) - 1;
+	
+	// The section records; a free record has a length of 0, and the number of the next free record
+	private OffHeapMemory records = new OffHeapMemory(RECORD_SIZE << 10);
+	private int recordCount = 0;
+	private int freeRecord = NONE;
+	
+	// An open-addressing table of end-points: (end-point key + 1 << 32 | record number), or 0
+	private OffHeapMemory endPointTable = new OffHeapMemory(8 << 11);
+	private long endPointMask = (1 << 11) - 1;
+	
+	private int size = 0;
+	private int modCount = 0;
+	
+	/*
+	 * invariant: each section is stored in a record that isn't free, and is mapped to by each of its
+	 * end-points in endPointTable, which holds nothing else; junctionTable holds each of the
+	 * junctionCount junctions exactly once; both tables are at most half full
+	 */
+	
+	/**
+	 * Creates a new track with no sections.
+	 */
+	public OffHeapTrack() {
+	
+	}
+	
+	/**
+	 * Adds the given section to the track, unless the addition of the section would result in the
+	 * track becoming invalid, as for {@link Track#addSection(Section)}.
+	 * 
+	 * @param section - The section to be added to the track.
+	 * @throws NullPointerException If section is null.
+	 * @throws InvalidTrackException If the track does not already contain an equivalent section,
+	 *         but it already contains a section that is connected to one of the same end-points as
+	 *         the given section.
+	 */
+	public void addSection(Section section) throws NullPointerException, InvalidTrackException {
+		TrackRules.checkNotNull(section);
+		if (contains(section)) {
+			return;
+		}
+		TrackRules.checkEndPoints(section,
+				endPoint -> getTrackSection(endPoint.getJunction(), endPoint.getBranch()));
+		
+		JunctionBranch first = section.getFirstEndPoint();
+		JunctionBranch second = section.getSecondEndPoint();
+		int firstJunction = junctionNumber(first.getJunction(), true);
+		int secondJunction = junctionNumber(second.getJunction(), true);
+		int record = allocateRecord();
+		long base = (long) record * RECORD_SIZE;
+		records.putInt(base + FIRST_JUNCTION, firstJunction);
+		records.putInt(base + SECOND_JUNCTION, secondJunction);
+		records.putInt(base + LENGTH, section.getLength());
+		records.putByte(base + FIRST_BRANCH, (byte) first.getBranch().ordinal());
+		records.putByte(base + SECOND_BRANCH, (byte) second.getBranch().ordinal());
+		
+		if ((long) (2 * size + 2) * 2 > endPointMask + 1) {
+			endPointTable = rehash(endPointTable, endPointMask, true);
+			endPointMask = endPointMask * 2 + 1;
+		}
+		insertEndPoint(key(firstJunction, first.getBranch()), record);
+		insertEndPoint(key(secondJunction, second.getBranch()), record);
+		size++;
+		modCount++;
+	}
+	
+	/**
+	 * If the track contains a section that is equivalent to this one, then it is removed from the
+	 * layout of the railway, otherwise this method does not alter the railway layout in any way.
+	 * 
+	 * @param section - The section to be removed from the track.
+	 */
+	public void removeSection(Section section) {
+		if (!contains(section)) {
+			return;
+		}
+		int record = NONE;
+		for (JunctionBranch endPoint : section.getEndPoints()) {
+			int key = key(junctionNumber(endPoint.getJunction(), false), endPoint.getBranch());
+			record = removeEndPoint(key);
+		}
+		long base = (long) record * RECORD_SIZE;
+		records.putInt(base + LENGTH, 0);
+		records.putInt(base + FIRST_JUNCTION, freeRecord);
+		freeRecord = record;
+		size--;
+		modCount++;
+	}
+	
+	/**
+	 * Returns true if the track contains the given section and false otherwise.
+	 * 
+	 * @param section - The section whose presence in the track is to be checked.
+	 * @return True iff the track contains a section that is equivalent to the given parameter.
+	 */
+	public boolean contains(Section section) {
+		if (section == null) {
+			return false;
+		}
+		int record = recordAt(section.getFirstEndPoint());
+		return record != NONE && record == recordAt(section.getSecondEndPoint())
+				&& records.getInt((long) record * RECORD_SIZE + LENGTH) == section.getLength();
+	}
+	
+	/**
+	 * Returns the number of sections in the track.
+	 * 
+	 * @return The number of sections.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns the number of branches of the given junction that are connected to sections of the
+	 * track. This is zero if the junction is not on the track, and at most three otherwise.
+	 * 
+	 * @param junction - The junction whose branches will be counted.
+	 * @return The number of sections connected to the junction, counting a loop section twice.
+	 */
+	public int getDegree(Junction junction) {
+		int number = (junction == null) ? NONE : junctionNumber(junction, false);
+		if (number == NONE) {
+			return 0;
+		}
+		int degree = 0;
+		for (Branch branch : BRANCHES) {
+			if (findEndPoint(key(number, branch)) != NONE) {
+				degree++;
+			}
+		}
+		return degree;
+	}
+	
+	/**
+	 * If the track contains a section that is connected to the given junction on the given branch,
+	 * then it returns that section, otherwise it returns null.
+	 * 
+	 * @param junction - The junction for which the section will be returned.
+	 * @param branch - The branch of the junction for which the section will be returned.
+	 * @return the section of track that is connected to the junction on the given branch, if there
+	 *         is one, otherwise null
+	 */
+	public Section getTrackSection(Junction junction, Branch branch) {
+		if (junction == null || branch == null) {
+			return null;
+		}
+		int number = junctionNumber(junction, false);
+		int record = (number == NONE) ? NONE : findEndPoint(key(number, branch));
+		return (record == NONE) ? null : section(record);
+	}
+	
+	/**
+	 * Returns the compiled form of the current layout of the track. Unlike the track itself, the
+	 * compiled form is held on the heap.
+	 * 
+	 * @return The compiled form of this track.
+	 */
+	public CompiledTrack compile() {
+		List<Section> sections = new ArrayList<>(size);
+		for (Section section : this) {
+			sections.add(section);
+		}
+		return new CompiledTrack(sections);
+	}
+	
+	/**
+	 * Returns the number of bytes of memory outside the heap that the track is using.
+	 * 
+	 * @return The size of the track's off-heap storage, in bytes.
+	 */
+	public long offHeapBytes() {
+		return names.size() + junctions.size() + junctionTable.size() + records.size()
+				+ endPointTable.size();
+	}
+	
+	/**
+	 * Returns an iterator over the sections in the track, in no particular order, creating each
+	 * section as it is returned. The iterator does not support removal, and throws
+	 * ConcurrentModificationException if the track is modified while it is in use.
+	 */
+	@Override
+	public Iterator<Section> iterator() {
+		return new Iterator<Section>() {
+			
+			private final int expectedModCount = modCount;
+			private int next = advance(0);
+			
+			private int advance(int record) {
+				while (record < recordCount
+						&& records.getInt((long) record * RECORD_SIZE + LENGTH) == 0) {
+					record++;
+				}
+				return record;
+			}
+			
+			@Override
+			public boolean hasNext() {
+				return next < recordCount;
+			}
+			
+			@Override
+			public Section next() {
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				} else if (next >= recordCount) {
+					throw new NoSuchElementException();
+				}
+				Section section = section(next);
+				next = advance(next + 1);
+				return section;
+			}
+		};
+	}
+	
+	/**
+	 * Returns the same string representation as {@link Track#toString()}.
+	 */
+	@Override
+	public String toString() {
+		String separator = System.getProperty("line.separator");
+		StringBuilder stringy = new StringBuilder();
+		for (Section section : this) {
+			if (stringy.length() > 0) {
+				stringy.append(separator);
+			}
+			stringy.append(section);
+		}
+		return stringy.toString();
+	}
+	
+	/**
+	 * Determines whether this class is internally consistent (i.e. it satisfies its class
+	 * invariant).
+	 * 
+	 * This method is only intended for testing purposes.
+	 * 
+	 * @return true if this class is internally consistent, and false otherwise.
+	 */
+	public boolean checkInvariant() {
+		int sections = 0;
+		for (int record = 0; record < recordCount; record++) {
+			long base = (long) record * RECORD_SIZE;
+			if (records.getInt(base + LENGTH) == 0) {
+				continue;
+			}
+			sections++;
+			int first = key(records.getInt(base + FIRST_JUNCTION),
+					BRANCHES[records.getByte(base + FIRST_BRANCH)]);
+			int second = key(records.getInt(base + SECOND_JUNCTION),
+					BRANCHES[records.getByte(base + SECOND_BRANCH)]);
+			if (first == second || findEndPoint(first) != record || findEndPoint(second) != record) {
+				return false;
+			}
+		}
+		long endPoints = 0;
+		for (long bucket = 0; bucket <= endPointMask; bucket++) {
+			if (endPointTable.getLong(bucket * 8) != 0) {
+				endPoints++;
+			}
+		}
+		for (int junction = 0; junction < junctionCount; junction++) {
+			String id = name(junction);
+			if (junctionNumber(new Junction(id), false) != junction) {
+				return false;
+			}
+		}
+		return sections == size && endPoints == 2L * size && 2L * junctionCount <= junctionMask + 1
+				&& 4L * size <= endPointMask + 1;
+	}
+	
+	/**
+	 * Creates the section stored in the given record.
+	 */
+	private Section section(int record) {
+		long base = (long) record * RECORD_SIZE;
+		JunctionBranch first = new JunctionBranch(
+				new Junction(name(records.getInt(base + FIRST_JUNCTION))),
+				BRANCHES[records.getByte(base + FIRST_BRANCH)]);
+		JunctionBranch second = new JunctionBranch(
+				new Junction(name(records.getInt(base + SECOND_JUNCTION))),
+				BRANCHES[records.getByte(base + SECOND_BRANCH)]);
+		return new Section(records.getInt(base + LENGTH), first, second);
+	}
+	
+	/**
+	 * Returns the number of a free record, growing the records if there are none.
+	 */
+	private int allocateRecord() {
+		if (freeRecord != NONE) {
+			int record = freeRecord;
+			freeRecord = records.getInt((long) record * RECORD_SIZE + FIRST_JUNCTION);
+			return record;
+		}
+		if ((long) (recordCount + 1) * RECORD_SIZE > records.size()) {
+			records = records.resize(records.size() * 2);
+		}
+		return recordCount++;
+	}
+	
+	/**
+	 * Returns the record of the section at the given end-point, or NONE if there isn't one.
+	 */
+	private int recordAt(JunctionBranch endPoint) {
+		int junction = junctionNumber(endPoint.getJunction(), false);
+		return (junction == NONE) ? NONE : findEndPoint(key(junction, endPoint.getBranch()));
+	}
+	
+	private static int key(int junction, Branch branch) {
+		return junction * 3 + branch.ordinal();
+	}
+	
+	/**
+	 * Spreads the bits of a hash, for indexing a table.
+	 */
+	private static int mix(int hash) {
+		int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
+	private int findEndPoint(int key) {
+		long tag = (long) (key + 1) << 32;
+		for (long bucket = mix(key) & endPointMask;; bucket = (bucket + 1) & endPointMask) {
+			long entry = endPointTable.getLong(bucket * 8);
+			if (entry == 0) {
+				return NONE;
+			} else if ((entry & 0xFFFFFFFF00000000L) == tag) {
+				return (int) entry;
+			}
+		}
+	}
+	
+	private void insertEndPoint(int key, int record) {
+		long bucket = mix(key) & endPointMask;
+		while (endPointTable.getLong(bucket * 8) != 0) {
+			bucket = (bucket + 1) & endPointMask;
+		}
+		endPointTable.putLong(bucket * 8, ((long) (key + 1) << 32) | record);
+	}
+	
+	/**
+	 * Removes the given key (which must be present) from the end-point table, shifting back the
+	 * entries after it so that no probe sequence is broken, and returns its record.
+	 */
+	private int removeEndPoint(int key) {
+		long tag = (long) (key + 1) << 32;
+		long bucket = mix(key) & endPointMask;
+		while ((endPointTable.getLong(bucket * 8) & 0xFFFFFFFF00000000L) != tag) {
+			bucket = (bucket + 1) & endPointMask;
+		}
+		int record = (int) endPointTable.getLong(bucket * 8);
+		long hole = bucket;
+		for (long next = (hole + 1) & endPointMask;; next = (next + 1) & endPointMask) {
+			long entry = endPointTable.getLong(next * 8);
+			if (entry == 0) {
+				break;
+			}
+			long home = mix((int) (entry >>> 32) - 1) & endPointMask;
+			// Move the entry into the hole, unless its home lies cyclically in (hole, next]
+			if (((next - home) & endPointMask) >= ((next - hole) & endPointMask)) {
+				endPointTable.putLong(hole * 8, entry);
+				hole = next;
+			}
+		}
+		endPointTable.putLong(hole * 8, 0);
+		return record;
+	}
+	
+	/**
+	 * Returns a table of twice the size, holding the entries of the given one. The entries of the
+	 * end-point table are hashed by their keys, and those of the junction table by their hashes.
+	 */
+	private static OffHeapMemory rehash(OffHeapMemory table, long mask, boolean endPoints) {
+		long newMask = mask * 2 + 1;
+		OffHeapMemory bigger = new OffHeapMemory((newMask + 1) * 8);
+		for (long bucket = 0; bucket <= mask; bucket++) {
+			long entry = table.getLong(bucket * 8);
+			if (entry != 0) {
+				int high = (int) (entry >>> 32);
+				long slot = (endPoints ? mix(high - 1) : high) & newMask;
+				while (bigger.getLong(slot * 8) != 0) {
+					slot = (slot + 1) & newMask;
+				}
+				bigger.putLong(slot * 8, entry);
+			}
+		}
+		return bigger;
+	}
+	
+	/**
+	 * Returns the number of the given junction, or NONE if it has never been on the track (unless
+	 * create is true, in which case it is given a new number).
+	 */
+	private int junctionNumber(Junction junction, boolean create) {
+		String id = junction.getJunctionId();
+		int hash = mix(id.hashCode());
+		long bucket = hash & junctionMask;
+		for (long entry; (entry = junctionTable.getLong(bucket * 8)) != 0;
+				bucket = (bucket + 1) & junctionMask) {
+			int number = (int) entry - 1;
+			if ((int) (entry >>> 32) == hash && nameEquals(number, id)) {
+				return number;
+			}
+		}
+		if (!create) {
+			return NONE;
+		} else if (junctionCount == MAX_JUNCTIONS) {
+			throw new IllegalStateException("The track cannot hold more than " + MAX_JUNCTIONS
+					+ " junctions.");
+		}
+		
+		int number = junctionCount++;
+		long offset = storeName(id.getBytes(StandardCharsets.UTF_8));
+		if ((long) number * 8 + 8 > junctions.size()) {
+			junctions = junctions.resize(junctions.size() * 2);
+		}
+		junctions.putLong((long) number * 8, offset);
+		if (2L * junctionCount > junctionMask + 1) {
+			junctionTable = rehash(junctionTable, junctionMask, false);
+			junctionMask = junctionMask * 2 + 1;
+			bucket = hash & junctionMask;
+			while (junctionTable.getLong(bucket * 8) != 0) {
+				bucket = (bucket + 1) & junctionMask;
+			}
+		}
+		junctionTable.putLong(bucket * 8, ((long) hash << 32) | (number + 1L));
+		return number;
+	}
+	
+	/**
+	 * Appends a junction identifier to names, and returns its offset.
+	 */
+	private long storeName(byte[] bytes) {
+		long offset = namesUsed;
+		long needed = offset + 4 + ((bytes.length + 3) & ~3);
+		long capacity = names.size();
+		while (capacity < needed) {
+			capacity *= 2;
+		}
+		if (capacity > names.size()) {
+			names = names.resize(capacity);
+		}
+		names.putInt(offset, bytes.length);
+		for (int i = 0; i < bytes.length; i++) {
+			names.putByte(offset + 4 + i, bytes[i]);
+		}
+		namesUsed = needed;
+		return offset;
+	}
+	
+	/**
+	 * Returns true iff the stored identifier of the junction is the UTF-8 encoding of the given
+	 * one, encoding it a character at a time (as String.getBytes would, with an unpaired surrogate
+	 * as '?') so that lookups don't allocate.
+	 */
+	private boolean nameEquals(int junction, String id) {
+		long offset = junctions.getLong((long) junction * 8);
+		long at = offset + 4;
+		long end = at + names.getInt(offset);
+		for (int i = 0; i < id.length(); i++) {
+			int c = id.charAt(i);
+			if (Character.isHighSurrogate((char) c) && i + 1 < id.length()
+					&& Character.isLowSurrogate(id.charAt(i + 1))) {
+				c = Character.toCodePoint((char) c, id.charAt(++i));
+			} else if (Character.isSurrogate((char) c)) {
+				c = '?';
+			}
+			int length = (c < 0x80) ? 1 : (c < 0x800) ? 2 : (c < 0x10000) ? 3 : 4;
+			if (end - at < length) {
+				return false;
+			}
+			// The leading byte holds the length and the high bits, then 6 bits per byte follow
+			int lead = (length == 1) ? c : ((0xFF00 >> length) & 0xFF) | (c >> (6 * (length - 1)));
+			if (names.getByte(at++) != (byte) lead) {
+				return false;
+			}
+			for (int shift = 6 * (length - 2); shift >= 0; shift -= 6) {
+				if (names.getByte(at++) != (byte) (0x80 | ((c >> shift) & 0x3F))) {
+					return false;
+				}
+			}
+		}
+		return at == end;
+	}
+	
+	private String name(int junction) {
+		long offset = junctions.getLong((long) junction * 8);
+		byte[] bytes = new byte[names.getInt(offset)];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = names.getByte(offset + 4 + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
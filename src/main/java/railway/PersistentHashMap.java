@@ -0,0 +1,317 @@
+package railway;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>
+ * An immutable hash map, where adding or removing a key returns a new map that shares all but
+ * O(log n) of its structure with the old one. Old versions are ordinary garbage once nothing refers
+ * to them.
+ * </p>
+ * 
+ * <p>
+ * The map is a hash array mapped trie: each node covers five bits of the keys' hashes, and holds
+ * a bitmap of which of its 32 children are present, followed by the children themselves (either
+ * entries or sub-nodes), so an absent child takes no space. Keys whose hashes are entirely equal
+ * share a collision node at the bottom of the trie. Keys and values may not be null.
+ * </p>
+ * 
+ * @author Addison Gourluck
+ */
+final class PersistentHashMap<K, V> implements Iterable<Map.Entry<K, V>> {
+	
+	private static final int BITS = 5;
+	private static final int MASK = (1 << BITS) - 1;
+	
+	// Nodes at this depth or deeper hold colliding entries in a flat list, with no bitmap
+	private static final int COLLISION_SHIFT = 35;
+	
+	// The deepest a node can be (counting the root and collision nodes)
+	private static final int MAX_DEPTH = COLLISION_SHIFT / BITS + 1;
+	
+	private static final Node EMPTY_NODE = new Node(0, new Object[0]);
+	private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(EMPTY_NODE, 0);
+	
+	private final Node root;
+	private final int size;
+	
+	private PersistentHashMap(Node root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+	
+	/**
+	 * Returns the empty map.
+	 * 
+	 * @return A map with no entries.
+	 */
+	@SuppressWarnings("unchecked")
+	static <K, V> PersistentHashMap<K, V> empty() {
+		return (PersistentHashMap<K, V>) EMPTY;
+	}
+	
+	/**
+	 * A node of the trie: a bitmap of the children that are present, and the children, in order,
+	 * each of which is either an Entry or a Node.
+	 */
+	private static final class Node {
+		
+		final int bitmap;
+		final Object[] children;
+		
+		Node(int bitmap, Object[] children) {
+			this.bitmap = bitmap;
+			this.children = children;
+		}
+		
+		Node with(int index, Object child) {
+			Object[] copy = children.clone();
+			copy[index] = child;
+			return new Node(bitmap, copy);
+		}
+		
+		Node inserting(int bit, int index, Object child) {
+			Object[] copy = new Object[children.length + 1];
+			System.arraycopy(children, 0, copy, 0, index);
+			copy[index] = child;
+			System.arraycopy(children, index, copy, index + 1, children.length - index);
+			return new Node(bitmap | bit, copy);
+		}
+		
+		Node removing(int bit, int index) {
+			if (children.length == 1) {
+				return null;
+			}
+			Object[] copy = new Object[children.length - 1];
+			System.arraycopy(children, 0, copy, 0, index);
+			System.arraycopy(children, index + 1, copy, index, copy.length - index);
+			return new Node(bitmap & ~bit, copy);
+		}
+	}
+	
+	/**
+	 * A key and value, along with the hash of the key.
+	 */
+	private static final class Entry<K, V> extends AbstractMap.SimpleImmutableEntry<K, V> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		final int hash;
+		
+		Entry(K key, V value, int hash) {
+			super(key, value);
+			this.hash = hash;
+		}
+		
+		boolean hasKey(Object key, int keyHash) {
+			return hash == keyHash && getKey().equals(key);
+		}
+	}
+	
+	/**
+	 * Returns the number of entries in the map.
+	 * 
+	 * @return The size of the map.
+	 */
+	int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns the value for the given key, or null if there is no entry for it.
+	 * 
+	 * @param key - The key to look up.
+	 * @return The value of the key, or null.
+	 */
+	V get(Object key) {
+		Entry<K, V> entry = find(key);
+		return (entry == null) ? null : entry.getValue();
+	}
+	
+	@SuppressWarnings("unchecked")
+	private Entry<K, V> find(Object key) {
+		int hash = key.hashCode();
+		Node node = root;
+		for (int shift = 0; shift < COLLISION_SHIFT; shift += BITS) {
+			int bit = 1 << ((hash >>> shift) & MASK);
+			if ((node.bitmap & bit) == 0) {
+				return null;
+			}
+			Object child = node.children[Integer.bitCount(node.bitmap & (bit - 1))];
+			if (child instanceof Entry) {
+				Entry<K, V> entry = (Entry<K, V>) child;
+				return entry.hasKey(key, hash) ? entry : null;
+			}
+			node = (Node) child;
+		}
+		for (Object child : node.children) {
+			Entry<K, V> entry = (Entry<K, V>) child;
+			if (entry.hasKey(key, hash)) {
+				return entry;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns a map with the given entry added, replacing any entry with the same key.
+	 * 
+	 * @param key - The key of the entry.
+	 * @param value - The value of the entry.
+	 * @return The new map (or this map, if it already held the entry).
+	 * @throws NullPointerException If the key or value is null.
+	 */
+	PersistentHashMap<K, V> plus(K key, V value) throws NullPointerException {
+		if (value == null) {
+			throw new NullPointerException("A persistent map cannot hold null values.");
+		}
+		Entry<K, V> existing = find(key);
+		if (existing != null && existing.getValue() == value) {
+			return this;
+		}
+		Node newRoot = put(root, new Entry<>(key, value, key.hashCode()), 0);
+		return new PersistentHashMap<>(newRoot, (existing == null) ? size + 1 : size);
+	}
+	
+	private static Node put(Node node, Entry<?, ?> entry, int shift) {
+		if (shift >= COLLISION_SHIFT) {
+			for (int i = 0; i < node.children.length; i++) {
+				if (((Entry<?, ?>) node.children[i]).hasKey(entry.getKey(), entry.hash)) {
+					return node.with(i, entry);
+				}
+			}
+			return node.inserting(0, node.children.length, entry);
+		}
+		int bit = 1 << ((entry.hash >>> shift) & MASK);
+		int index = Integer.bitCount(node.bitmap & (bit - 1));
+		if ((node.bitmap & bit) == 0) {
+			return node.inserting(bit, index, entry);
+		}
+		Object child = node.children[index];
+		if (child instanceof Node) {
+			return node.with(index, put((Node) child, entry, shift + BITS));
+		}
+		Entry<?, ?> other = (Entry<?, ?>) child;
+		if (other.hasKey(entry.getKey(), entry.hash)) {
+			return node.with(index, entry);
+		}
+		return node.with(index, pair(other, entry, shift + BITS));
+	}
+	
+	/**
+	 * Returns a node holding the two given entries, whose hashes agree below the given shift.
+	 */
+	private static Node pair(Entry<?, ?> a, Entry<?, ?> b, int shift) {
+		if (shift >= COLLISION_SHIFT) {
+			return new Node(0, new Object[] { a, b });
+		}
+		int indexA = (a.hash >>> shift) & MASK;
+		int indexB = (b.hash >>> shift) & MASK;
+		if (indexA == indexB) {
+			return new Node(1 << indexA, new Object[] { pair(a, b, shift + BITS) });
+		}
+		Object[] children = (indexA < indexB) ? new Object[] { a, b } : new Object[] { b, a };
+		return new Node((1 << indexA) | (1 << indexB), children);
+	}
+	
+	/**
+	 * Returns a map without the entry for the given key.
+	 * 
+	 * @param key - The key to remove.
+	 * @return The new map (or this map, if it had no entry for the key).
+	 */
+	PersistentHashMap<K, V> minus(Object key) {
+		if (find(key) == null) {
+			return this;
+		}
+		Node newRoot = remove(root, key, key.hashCode(), 0);
+		return new PersistentHashMap<>((newRoot == null) ? EMPTY_NODE : newRoot, size - 1);
+	}
+	
+	/**
+	 * Removes the key (which must be present) from the subtree, returning null if the subtree is
+	 * left empty.
+	 */
+	private static Node remove(Node node, Object key, int hash, int shift) {
+		if (shift >= COLLISION_SHIFT) {
+			for (int i = 0; i < node.children.length; i++) {
+				if (((Entry<?, ?>) node.children[i]).hasKey(key, hash)) {
+					return node.removing(0, i);
+				}
+			}
+			return node;
+		}
+		int bit = 1 << ((hash >>> shift) & MASK);
+		int index = Integer.bitCount(node.bitmap & (bit - 1));
+		Object child = node.children[index];
+		if (child instanceof Entry) {
+			return node.removing(bit, index);
+		}
+		Node newChild = remove((Node) child, key, hash, shift + BITS);
+		if (newChild == null) {
+			return node.removing(bit, index);
+		} else if (newChild.children.length == 1 && newChild.children[0] instanceof Entry) {
+			// Pull a lone entry up, so that the trie stays as shallow as possible
+			return node.with(index, newChild.children[0]);
+		}
+		return node.with(index, newChild);
+	}
+	
+	/**
+	 * Returns an iterator over the entries of the map, in no particular order.
+	 */
+	@Override
+	public Iterator<Map.Entry<K, V>> iterator() {
+		return new Iterator<Map.Entry<K, V>>() {
+			
+			// The path from the root to the node being visited, and the next child of each
+			private final Node[] nodes = new Node[MAX_DEPTH + 1];
+			private final int[] positions = new int[MAX_DEPTH + 1];
+			private int depth = 0;
+			private Entry<K, V> next;
+			
+			{
+				nodes[0] = root;
+				advance();
+			}
+			
+			@SuppressWarnings("unchecked")
+			private void advance() {
+				next = null;
+				while (depth >= 0) {
+					Node node = nodes[depth];
+					if (positions[depth] == node.children.length) {
+						depth--;
+						continue;
+					}
+					Object child = node.children[positions[depth]++];
+					if (child instanceof Entry) {
+						next = (Entry<K, V>) child;
+						return;
+					}
+					depth++;
+					nodes[depth] = (Node) child;
+					positions[depth] = 0;
+				}
+			}
+			
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+			
+			@Override
+			public Map.Entry<K, V> next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				Entry<K, V> result = next;
+				advance();
+				return result;
+			}
+		};
+	}
+}
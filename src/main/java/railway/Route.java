@@ -0,0 +1,81 @@
+package railway;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * An immutable class representing a route that a train can take between two locations on a
+ * railway track.
+ * </p>
+ * 
+ * <p>
+ * A route is made up of the sequence of sections that the train travels along, in order, and the
+ * total distance travelled. The first and last sections may only be travelled along in part, if
+ * the route starts or ends part-way along a section. A section may appear more than once, if the
+ * route goes around a loop.
+ * </p>
+ * 
+ * @author Addison Gourluck
+ */
+public class Route {
+	
+	private final List<Section> sections;
+	private final int length;
+	
+	/*
+	 * invariant: sections != null && length >= 0
+	 */
+	
+	/**
+	 * Creates a new route along the given sections.
+	 * 
+	 * @param sections - The sections travelled along, in order.
+	 * @param length - The total distance travelled, in meters.
+	 */
+	Route(List<Section> sections, int length) {
+		this.sections = Collections.unmodifiableList(sections);
+		this.length = length;
+	}
+	
+	/**
+	 * Returns the sections that the route travels along, in the order they are travelled along.
+	 * 
+	 * @return An unmodifiable list of the sections of the route.
+	 */
+	public List<Section> getSections() {
+		return sections;
+	}
+	
+	/**
+	 * Returns the total distance travelled along the route.
+	 * 
+	 * @return The length of the route, in meters.
+	 */
+	public int getLength() {
+		return length;
+	}
+	
+	/**
+	 * Returns a string of the form: "LENGTH via [SECTIONS]"
+	 * 
+	 * where LENGTH is the length of the route and SECTIONS is a comma-separated list of the string
+	 * representations of the sections of the route.
+	 */
+	@Override
+	public String toString() {
+		return String.format("%d via %s", length, sections);
+	}
+	
+	/**
+	 * Determines whether this class is internally consistent (i.e. it satisfies its class
+	 * invariant).
+	 * 
+	 * This method is only intended for testing purposes.
+	 * 
+	 * @return True if this class is internally consistent, and false otherwise.
+	 */
+	public boolean checkInvariant() {
+		return (sections != null && length >= 0);
+	}
+}
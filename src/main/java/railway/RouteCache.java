@@ -0,0 +1,368 @@
+package railway;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * <p>
+ * A bounded cache of the shortest routes between pairs of locations on a track, which evicts the
+ * least recently used route when it is full, and keeps count of its hits and misses.
+ * </p>
+ * 
+ * <p>
+ * Routes are keyed by their origin and destination, so equivalent descriptions of the same
+ * locations (see {@link Location#equals(Object)}) share an entry. The cache listens to the track,
+ * and only drops the routes that a change to the track could affect:
+ * </p>
+ * 
+ * <ul>
+ * <li>Removing a section only affects the routes that travel along it (or start or end on it).
+ * Every other route is still there, and removing sections never makes a route shorter.</li>
+ * <li>Adding a section can only affect a route if the new section is connected to both its origin
+ * and destination, and is shorter than it (as any new route has to travel the whole of the new
+ * section). A missing route is affected by any new section connected to both ends. The routes are
+ * also indexed by the connected component of their origins, so only the routes that start in the
+ * component of a new section are checked.</li>
+ * </ul>
+ * 
+ * <p>
+ * The cache is safe to use from several threads, although the track itself is not.
+ * </p>
+ * 
+ * @author Addison Gourluck
+ */
+public final class RouteCache implements TrackListener {
+	
+	private final Track track;
+	private final int capacity;
+	
+	// The cached routes (null where there is no route), least recently used first
+	private final LinkedHashMap<Key, Entry> entries;
+	
+	// The keys of the entries whose routes travel along (or start or end on) each section
+	private final Map<Section, Set<Key>> bySection = new HashMap<>();
+	
+	// The entries whose origins are in each component of the track, by the junction that
+	// represented the component when they were filed (or null, for origins off the track)
+	private final Map<Junction, Map<Key, Entry>> byComponent = new HashMap<>();
+	
+	// Whether the cache has been detached from its track
+	private boolean detached = false;
+	
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private long invalidations = 0;
+	
+	/**
+	 * An origin and destination.
+	 */
+	private static final class Key {
+		
+		final Location from;
+		final Location to;
+		
+		Key(Location from, Location to) {
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return from.equals(other.from) && to.equals(other.to);
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * from.hashCode() + to.hashCode();
+		}
+	}
+	
+	/**
+	 * A cached route, and the sections and component it is indexed under.
+	 */
+	private static final class Entry {
+		
+		final Route route;
+		final Set<Section> sections = new HashSet<>();
+		Junction component;
+		
+		Entry(Key key, Route route) {
+			this.route = route;
+			sections.add(key.from.getSection());
+			sections.add(key.to.getSection());
+			if (route != null) {
+				sections.addAll(route.getSections());
+			}
+		}
+	}
+	
+	/**
+	 * Creates an empty cache of routes on the given track, and registers it as a listener of the
+	 * track.
+	 * 
+	 * @param track - The track to find routes on.
+	 * @param capacity - The most routes to hold.
+	 * @throws NullPointerException If track is null.
+	 * @throws IllegalArgumentException If capacity is not positive.
+	 */
+	public RouteCache(Track track, int capacity)
+			throws NullPointerException, IllegalArgumentException {
+		if (track == null) {
+			throw new NullPointerException("Cannot cache the routes of a null track.");
+		} else if (capacity <= 0) {
+			throw new IllegalArgumentException("The capacity of the cache must be positive.");
+		}
+		this.track = track;
+		this.capacity = capacity;
+		entries = new LinkedHashMap<>(16, 0.75f, true);
+		track.addTrackListener(this);
+	}
+	
+	/**
+	 * Returns a shortest route from one location to another, as for
+	 * {@link Track#shortestRoute(Location, Location)}, from the cache if possible.
+	 * 
+	 * @param from - The location that the route starts from.
+	 * @param to - The location that the route ends at.
+	 * @return A shortest route from the first location to the second, or null if there isn't one.
+	 * @throws NullPointerException If either location is null.
+	 * @throws IllegalStateException If the cache has been detached from its track.
+	 */
+	public synchronized Route shortestRoute(Location from, Location to)
+			throws NullPointerException, IllegalStateException {
+		if (detached) {
+			throw new IllegalStateException("The cache has been detached from its track.");
+		}
+		Key key = new Key(Objects.requireNonNull(from), Objects.requireNonNull(to));
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			hits++;
+			return entry.route;
+		}
+		misses++;
+		entry = new Entry(key, track.shortestRoute(from, to));
+		entries.put(key, entry);
+		for (Section section : entry.sections) {
+			bySection.computeIfAbsent(section, s -> new HashSet<>()).add(key);
+		}
+		file(key, entry);
+		if (entries.size() > capacity) {
+			Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+			Map.Entry<Key, Entry> evicted = eldest.next();
+			eldest.remove();
+			unindex(evicted.getKey(), evicted.getValue());
+			evictions++;
+		}
+		return entry.route;
+	}
+	
+	/**
+	 * Drops the routes affected by a change to the track.
+	 */
+	@Override
+	public synchronized void trackChanged(TrackChange change) {
+		for (Section section : change.getRemoved()) {
+			Set<Key> keys = bySection.get(section);
+			if (keys != null) {
+				for (Key key : keys.toArray(new Key[keys.size()])) {
+					invalidate(key);
+				}
+			}
+		}
+		if (entries.isEmpty()) {
+			return;
+		}
+		// Removing a section can split its component in two, and each piece contains one of its
+		// junctions, so the entries of both pieces may be filed under the wrong one
+		Set<Junction> split = new HashSet<>();
+		for (Section section : change.getRemoved()) {
+			split.add(track.component(section.getFirstEndPoint().getJunction()));
+			split.add(track.component(section.getSecondEndPoint().getJunction()));
+		}
+		refile(split);
+		if (change.getAdded().isEmpty()) {
+			return;
+		}
+		Set<Junction> components = new HashSet<>();
+		for (Section section : change.getAdded()) {
+			components.add(track.component(section.getFirstEndPoint().getJunction()));
+		}
+		List<Key> affected = new ArrayList<>();
+		for (Junction component : components) {
+			Map<Key, Entry> filed = byComponent.getOrDefault(component,
+					Collections.<Key, Entry>emptyMap());
+			for (Map.Entry<Key, Entry> entry : filed.entrySet()) {
+				if (isAffected(entry.getKey(), entry.getValue().route, change)) {
+					affected.add(entry.getKey());
+				}
+			}
+		}
+		for (Key key : affected) {
+			invalidate(key);
+		}
+	}
+	
+	/**
+	 * Files an entry under the current component of its origin.
+	 */
+	private void file(Key key, Entry entry) {
+		entry.component = track.component(key.from.getEndPoint().getJunction());
+		byComponent.computeIfAbsent(entry.component, c -> new HashMap<>()).put(key, entry);
+	}
+	
+	/**
+	 * Refiles the entries of each component that has changed its representative since they were
+	 * filed (because it was merged with another, or split), of each of the given components, and
+	 * of origins that were off the track, so that every entry is filed under the current component
+	 * of its origin.
+	 */
+	private void refile(Set<Junction> split) {
+		List<Map<Key, Entry>> moved = new ArrayList<>();
+		for (Iterator<Map.Entry<Junction, Map<Key, Entry>>> it = byComponent.entrySet().iterator();
+				it.hasNext();) {
+			Map.Entry<Junction, Map<Key, Entry>> filed = it.next();
+			Junction component = filed.getKey();
+			Junction current = (component == null) ? null : track.component(component);
+			if (current == null || !current.equals(component) || split.contains(current)) {
+				moved.add(filed.getValue());
+				it.remove();
+			}
+		}
+		for (Map<Key, Entry> filed : moved) {
+			for (Map.Entry<Key, Entry> entry : filed.entrySet()) {
+				file(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+	
+	/**
+	 * Returns true if one of the added sections could give a shorter route than the cached one,
+	 * because it's shorter than the route and is connected to both ends of it.
+	 */
+	private boolean isAffected(Key key, Route route, TrackChange change) {
+		Junction from = key.from.getEndPoint().getJunction();
+		Junction to = key.to.getEndPoint().getJunction();
+		for (Section section : change.getAdded()) {
+			if (route != null && section.getLength() >= route.getLength()) {
+				continue;
+			}
+			Junction junction = section.getFirstEndPoint().getJunction();
+			if (track.connected(junction, from) && track.connected(junction, to)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private void invalidate(Key key) {
+		Entry entry = entries.remove(key);
+		if (entry != null) {
+			unindex(key, entry);
+			invalidations++;
+		}
+	}
+	
+	private void unindex(Key key, Entry entry) {
+		for (Section section : entry.sections) {
+			Set<Key> keys = bySection.get(section);
+			keys.remove(key);
+			if (keys.isEmpty()) {
+				bySection.remove(section);
+			}
+		}
+		Map<Key, Entry> filed = byComponent.get(entry.component);
+		filed.remove(key);
+		if (filed.isEmpty()) {
+			byComponent.remove(entry.component);
+		}
+	}
+	
+	/**
+	 * Stops listening to the track, and empties the cache. Any later request for a route throws an
+	 * IllegalStateException, although the statistics can still be read.
+	 */
+	public synchronized void detach() {
+		track.removeTrackListener(this);
+		entries.clear();
+		bySection.clear();
+		byComponent.clear();
+		detached = true;
+	}
+	
+	/**
+	 * Returns the number of routes in the cache.
+	 * 
+	 * @return The number of cached routes.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * Returns the number of requests that were answered from the cache.
+	 * 
+	 * @return The number of hits.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+	
+	/**
+	 * Returns the number of requests that had to search the track.
+	 * 
+	 * @return The number of misses.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+	
+	/**
+	 * Returns the number of routes dropped to make room for others.
+	 * 
+	 * @return The number of evictions.
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+	
+	/**
+	 * Returns the number of routes dropped because the track changed.
+	 * 
+	 * @return The number of invalidations.
+	 */
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+	
+	/**
+	 * Returns the fraction of requests that were answered from the cache.
+	 * 
+	 * @return The hit rate, or zero if there have been no requests.
+	 */
+	public synchronized double getHitRate() {
+		long requests = hits + misses;
+		return (requests == 0) ? 0 : (double) hits / requests;
+	}
+	
+	/**
+	 * Returns a string of the form "RouteCache[SIZE/CAPACITY, HITS hits, MISSES misses]".
+	 */
+	@Override
+	public synchronized String toString() {
+		return "RouteCache[" + entries.size() + "/" + capacity + ", " + hits + " hits, " + misses
+				+ " misses]";
+	}
+}
@@ -0,0 +1,301 @@
+package railway;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * A reusable workspace for finding the shortest route between two locations on a compiled track.
+ * </p>
+ * 
+ * <p>
+ * The search is a Dijkstra search whose states are slots: a train that has arrived at a junction
+ * along a given branch. The switch rules restrict how a train may leave: a train arriving on the
+ * NORMAL or REVERSE branch can only leave by the FACING branch, and a train arriving on the FACING
+ * branch can leave by either the NORMAL or REVERSE branch.
+ * </p>
+ * 
+ * <p>
+ * If landmarks are given, the search is an A* search, guided by the lower bounds that the
+ * landmarks give on the distance remaining to the destination. Otherwise, it is a plain Dijkstra
+ * search.
+ * </p>
+ * 
+ * <p>
+ * The priority queue is a heap of primitive longs, and the per-slot arrays are only cleared lazily
+ * (by stamping each entry with the search that set it), so a search doesn't allocate until it
+ * builds its result. A workspace is not thread-safe; CompiledTrack keeps a small pool of
+ * them, and lends each to one search at a time.
+ * </p>
+ * 
+ * @author Addison Gourluck
+ */
+final class RouteSearch {
+	
+	private static final int NONE = CompiledTrack.NONE;
+	
+	private final CompiledTrack track;
+	
+	// Per slot: the distance to arrive there, the slot arrived at before it (or NONE), and a lower
+	// bound on the distance from there to the destination
+	private final int[] distance;
+	private final int[] parent;
+	private final int[] estimate;
+	private final int[] stamp;
+	private int search = 0;
+	
+	private final LongHeap heap = new LongHeap();
+	private Landmarks landmarks;
+	
+	// The destination of the current search: either a junction, or a point along a section
+	private int targetJunction;
+	private int targetSection;
+	private int targetSlot;
+	private int targetOffset;
+	
+	// The best route to the destination found so far
+	private int best;
+	private int bestArrival;
+	
+	RouteSearch(CompiledTrack track) {
+		this.track = track;
+		distance = new int[track.slotCount()];
+		parent = new int[track.slotCount()];
+		estimate = new int[track.slotCount()];
+		stamp = new int[track.slotCount()];
+	}
+	
+	/**
+	 * Returns the shortest route from one location to another, or null if there is no route
+	 * between them that obeys the switch rules (including if either location is not on the track).
+	 * 
+	 * @param from - The location that the route starts from.
+	 * @param to - The location that the route ends at.
+	 * @param guide - The landmarks to guide the search with, or null.
+	 * @return The shortest route from the first location to the second, or null.
+	 */
+	Route shortestRoute(Location from, Location to, Landmarks guide) {
+		// Where the route starts
+		int startSection = NONE;
+		int startSlot;
+		int startJunction = NONE;
+		if (from.atAJunction()) {
+			startJunction = track.junctionId(from.getEndPoint().getJunction());
+			if (startJunction == NONE) {
+				return null;
+			}
+			startSlot = NONE;
+		} else {
+			startSection = track.sectionId(from.getSection());
+			if (startSection == NONE) {
+				return null;
+			}
+			startSlot = track.slot(from.getEndPoint());
+		}
+		
+		// Where the route ends
+		targetJunction = NONE;
+		targetSection = NONE;
+		if (to.atAJunction()) {
+			targetJunction = track.junctionId(to.getEndPoint().getJunction());
+			if (targetJunction == NONE) {
+				return null;
+			}
+			if (targetJunction == startJunction) {
+				return new Route(Collections.<Section>emptyList(), 0);
+			}
+		} else {
+			targetSection = track.sectionId(to.getSection());
+			if (targetSection == NONE) {
+				return null;
+			}
+			targetSlot = track.slot(to.getEndPoint());
+			targetOffset = to.getOffset();
+		}
+		
+		nextSearch();
+		landmarks = guide;
+		best = Integer.MAX_VALUE;
+		bestArrival = NONE;
+		if (startSection != NONE && targetSection == startSection) {
+			// Staying on the section is a route, but leaving it and coming back may be shorter
+			best = Math.abs(offsetFrom(startSlot) - from.getOffset());
+		}
+		if (startSection != NONE) {
+			// Travel to either end of the starting section
+			int length = track.length(startSection);
+			arrive(startSlot, from.getOffset(), NONE);
+			arrive(track.opposite(startSlot), length - from.getOffset(), NONE);
+		} else {
+			// A train standing at a junction can leave by any of its branches
+			depart(CompiledTrack.slot(startJunction, Branch.FACING), 0, NONE);
+			depart(CompiledTrack.slot(startJunction, Branch.NORMAL), 0, NONE);
+			depart(CompiledTrack.slot(startJunction, Branch.REVERSE), 0, NONE);
+		}
+		
+		run(null);
+		
+		if (best == Integer.MAX_VALUE) {
+			return null;
+		}
+		return buildRoute();
+	}
+	
+	/**
+	 * Computes the length of the shortest route from the given junction to every junction on the
+	 * track, where Landmarks.UNREACHABLE is given to junctions that can't be reached.
+	 * 
+	 * @param source - The number of the junction that the routes start from.
+	 * @param reached - The array to store the distance to each junction in, indexed by junction.
+	 */
+	void distancesFrom(int source, int[] reached) {
+		Arrays.fill(reached, Landmarks.UNREACHABLE);
+		reached[source] = 0;
+		
+		nextSearch();
+		landmarks = null;
+		targetJunction = NONE;
+		targetSection = NONE;
+		best = Integer.MAX_VALUE;
+		depart(CompiledTrack.slot(source, Branch.FACING), 0, NONE);
+		depart(CompiledTrack.slot(source, Branch.NORMAL), 0, NONE);
+		depart(CompiledTrack.slot(source, Branch.REVERSE), 0, NONE);
+		run(reached);
+	}
+	
+	/**
+	 * Settles slots in order of priority until the destination is reached, or there are none
+	 * left. If reached isn't null, the distance to each junction is recorded in it as its slots are
+	 * settled.
+	 */
+	private void run(int[] reached) {
+		while (!heap.isEmpty()) {
+			long entry = heap.pop();
+			int priority = LongHeap.priority(entry);
+			int slot = LongHeap.value(entry);
+			if (priority >= best) {
+				break;
+			} else if (priority > (long) distance[slot] + estimate[slot]) {
+				continue; // already settled with a shorter distance
+			}
+			int dist = distance[slot];
+			
+			int junction = CompiledTrack.junctionOf(slot);
+			if (junction == targetJunction) {
+				best = dist;
+				bestArrival = slot;
+				break;
+			} else if (reached != null && dist < reached[junction]) {
+				reached[junction] = dist;
+			}
+			
+			if (CompiledTrack.branchOf(slot) == Branch.FACING) {
+				depart(CompiledTrack.slot(junction, Branch.NORMAL), dist, slot);
+				depart(CompiledTrack.slot(junction, Branch.REVERSE), dist, slot);
+			} else {
+				depart(CompiledTrack.slot(junction, Branch.FACING), dist, slot);
+			}
+		}
+		heap.clear();
+	}
+	
+	/**
+	 * Records that a train can leave its junction from the given slot, having travelled dist to
+	 * reach it after arriving at the given slot (or NONE, if the route starts at the junction).
+	 */
+	private void depart(int slot, int dist, int arrival) {
+		int section = track.sectionAt(slot);
+		if (section == NONE) {
+			return;
+		}
+		if (section == targetSection) {
+			int candidate = dist + offsetFrom(slot);
+			if (candidate < best) {
+				best = candidate;
+				bestArrival = arrival;
+			}
+		}
+		arrive(track.opposite(slot), dist + track.length(section), arrival);
+	}
+	
+	/**
+	 * Records that a train can arrive at the given slot having travelled dist.
+	 */
+	private void arrive(int slot, int dist, int from) {
+		if (stamp[slot] != search) {
+			int remaining = estimate(CompiledTrack.junctionOf(slot));
+			if (remaining == Landmarks.UNREACHABLE) {
+				return; // the destination can't be reached from here
+			}
+			stamp[slot] = search;
+			estimate[slot] = remaining;
+		} else if (dist >= distance[slot]) {
+			return;
+		}
+		distance[slot] = dist;
+		parent[slot] = from;
+		heap.push(LongHeap.entry((int) Math.min((long) dist + estimate[slot], Integer.MAX_VALUE),
+				slot));
+	}
+	
+	/**
+	 * Returns a lower bound on the distance from the given junction to the destination, which is
+	 * zero if there are no landmarks, or Landmarks.UNREACHABLE if it can't be reached at all.
+	 */
+	private int estimate(int junction) {
+		if (landmarks == null) {
+			return 0;
+		} else if (targetJunction != NONE) {
+			return landmarks.lowerBound(junction, targetJunction);
+		}
+		// The destination is part-way along a section, so go via whichever end is closer
+		int near = landmarks.lowerBound(junction, CompiledTrack.junctionOf(targetSlot));
+		int far = landmarks.lowerBound(junction,
+				CompiledTrack.junctionOf(track.opposite(targetSlot)));
+		if (near == Landmarks.UNREACHABLE && far == Landmarks.UNREACHABLE) {
+			return Landmarks.UNREACHABLE;
+		}
+		long viaNear = (near == Landmarks.UNREACHABLE) ? Long.MAX_VALUE
+				: (long) near + targetOffset;
+		long viaFar = (far == Landmarks.UNREACHABLE) ? Long.MAX_VALUE
+				: (long) far + track.length(targetSection) - targetOffset;
+		return (int) Math.min(Math.min(viaNear, viaFar), Integer.MAX_VALUE - 1);
+	}
+	
+	/**
+	 * Returns the distance of the destination from the given end-point of its section.
+	 */
+	private int offsetFrom(int slot) {
+		return (slot == targetSlot) ? targetOffset : track.length(targetSection) - targetOffset;
+	}
+	
+	/**
+	 * Walks back from the best arrival to the start of the route, collecting the sections on the
+	 * way. If the route starts part-way along a section, the first slot arrived at is an end of
+	 * that section, so the route begins with it; if there is no arrival, the route stays on the
+	 * one section.
+	 */
+	private Route buildRoute() {
+		List<Section> sections = new ArrayList<>();
+		for (int slot = bestArrival; slot != NONE; slot = parent[slot]) {
+			sections.add(track.section(track.sectionAt(slot)));
+		}
+		Collections.reverse(sections);
+		if (targetSection != NONE) {
+			sections.add(track.section(targetSection));
+		}
+		return new Route(sections, best);
+	}
+	
+	/**
+	 * Starts a new search, invalidating the distances of the previous one.
+	 */
+	private void nextSearch() {
+		if (++search == Integer.MAX_VALUE) {
+			Arrays.fill(stamp, 0);
+			search = 1;
+		}
+	}
+}
@@ -1,6 +1,8 @@
 package railway;
 
-import java.util.HashSet;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -38,8 +40,11 @@ public class Section {
 	
 	private final JunctionBranch endPoint1;
 	private final JunctionBranch endPoint2;
-	private final Set<JunctionBranch> endPoints = new HashSet<>();
-	private final Set<Junction> junctions = new HashSet<>();
+	private final int hash;
+	
+	// The views returned by getEndPoints and getJunctions, made once since tracks call them often
+	private final Set<JunctionBranch> endPoints;
+	private final Set<Junction> junctions;
 	
 	public void main(String[] args) {
 		if (args.length != 5) {
@@ -52,8 +57,8 @@ public class Section {
 		}
 		
 		Section section = new Section(Integer.parseInt(args[0]),
-				new JunctionBranch(new Junction(args[1]), Branch.valueOf(args[3])),
-				new JunctionBranch(new Junction(args[2]), Branch.valueOf(args[4])));
+				JunctionBranch.of(Junction.of(args[1]), Branch.valueOf(args[3])),
+				JunctionBranch.of(Junction.of(args[2]), Branch.valueOf(args[4])));
 				
 	}
 	
@@ -80,10 +85,14 @@ public class Section {
 		this.length = length;
 		this.endPoint1 = endPoint1;
 		this.endPoint2 = endPoint2;
-		endPoints.add(endPoint1);
-		endPoints.add(endPoint2);
-		junctions.add(endPoint1.getJunction());
-		junctions.add(endPoint2.getJunction());
+		endPoints = new Pair<>(endPoint1, endPoint2);
+		junctions = new Pair<>(endPoint1.getJunction(), endPoint2.getJunction());
+		
+		final int prime = 37;
+		// Use difference between hashes so that things like A+D don't equal B+C
+		int result = prime * Math.abs(endPoint1.hashCode() - endPoint2.hashCode());
+		result = prime * result + endPoint1.hashCode() + endPoint2.hashCode();
+		hash = prime * result + length;
 	}
 	
 	/**
@@ -98,7 +107,7 @@ public class Section {
 	/**
 	 * Returns the end-points of the section.
 	 * 
-	 * @return a set of the end-points of the section.
+	 * @return an unmodifiable set of the end-points of the section.
 	 */
 	public Set<JunctionBranch> getEndPoints() {
 		return endPoints;
@@ -107,12 +116,40 @@ public class Section {
 	/**
 	 * Returns the junctions of the section.
 	 * 
-	 * @return a set of the junctions of the section.
+	 * @return an unmodifiable set of the junctions of the section.
 	 */
 	public Set<Junction> getJunctions() {
 		return junctions;
 	}
 	
+	/**
+	 * Returns the end-point that this section was constructed with first.
+	 * 
+	 * @return one end-point of the section
+	 */
+	JunctionBranch getFirstEndPoint() {
+		return endPoint1;
+	}
+	
+	/**
+	 * Returns the end-point that this section was constructed with second.
+	 * 
+	 * @return the other end-point of the section
+	 */
+	JunctionBranch getSecondEndPoint() {
+		return endPoint2;
+	}
+	
+	/**
+	 * Returns the lesser of the end-points of this section (see JunctionBranch.compare), which is
+	 * the same for equivalent sections, whichever order they were constructed with.
+	 * 
+	 * @return the lesser end-point of the section
+	 */
+	JunctionBranch getLesserEndPoint() {
+		return (JunctionBranch.compare(endPoint1, endPoint2) <= 0) ? endPoint1 : endPoint2;
+	}
+	
 	/**
 	 * If the given end-point is equivalent to an end-point of the section, then it returns the
 	 * end-point at the opposite end of the section. Otherwise this method throws an
@@ -192,12 +229,7 @@ public class Section {
 	
 	@Override
 	public int hashCode() {
-		final int prime = 37;
-		// Use difference between hashes so that things like A+D don't equal B+C
-		int result = prime * Math.abs(endPoint1.hashCode() - endPoint2.hashCode());
-		result = prime * result + endPoint1.hashCode() + endPoint2.hashCode();
-		result = prime * result + length;
-		return result;
+		return hash;
 	}
 	
 	/**
@@ -214,4 +246,49 @@ public class Section {
 		}
 		return true;
 	}
+	
+	/**
+	 * An unmodifiable set of one or two elements, which is lighter than a general-purpose set for
+	 * the end-points and junctions of a section.
+	 */
+	private static final class Pair<E> extends AbstractSet<E> {
+		
+		private final E first;
+		private final E second; // null if both elements are equal
+		
+		private Pair(E first, E second) {
+			this.first = first;
+			this.second = first.equals(second) ? null : second;
+		}
+		
+		@Override
+		public int size() {
+			return (second == null) ? 1 : 2;
+		}
+		
+		@Override
+		public boolean contains(Object o) {
+			return first.equals(o) || (second != null && second.equals(o));
+		}
+		
+		@Override
+		public Iterator<E> iterator() {
+			return new Iterator<E>() {
+				private int next = 0;
+				
+				@Override
+				public boolean hasNext() {
+					return next < size();
+				}
+				
+				@Override
+				public E next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					return (next++ == 0) ? first : second;
+				}
+			};
+		}
+	}
 }
\ No newline at end of file
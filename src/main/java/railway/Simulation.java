@@ -0,0 +1,310 @@
+package railway;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>
+ * A fixed-tick simulation of trains moving over a compiled track.
+ * </p>
+ * 
+ * <p>
+ * Each train is on a section, heading towards one of its end-points at a constant speed. Each tick
+ * moves every train speed * dt meters; a train that reaches the end of its section crosses the
+ * junction there, obeying the switch rules: a train arriving on a NORMAL or REVERSE branch leaves
+ * by the FACING branch, and a train arriving on the FACING branch leaves by whichever of the NORMAL
+ * and REVERSE branches its {@link SwitchSetting} gives (which may be a {@link SwitchStates}, so
+ * that switches can be thrown while the simulation runs). As with a {@link TrackCursor}, a train
+ * that reaches a junction exactly at the end of a tick stops at it, on the section it arrived by,
+ * and crosses it in the next tick. A train that reaches an end-point with nowhere to go stops
+ * there.
+ * </p>
+ * 
+ * <p>
+ * Trains are numbered from zero, and are held as parallel arrays of primitives (their section, the
+ * slot they are heading towards, their distance from it, and their speed), so stepping a train
+ * only reads and writes those arrays and the compiled track, and never allocates. Each tick splits
+ * the trains into a fixed set of partitions that are stepped in parallel in a ForkJoinPool; the
+ * partition tasks are reused from tick to tick.
+ * </p>
+ * 
+ * <p>
+ * A simulation is not thread-safe: it should only be used by one thread at a time (although each
+ * tick uses several threads internally).
+ * </p>
+ * 
+ * @author Addison Gourluck
+ */
+public final class Simulation {
+	
+	private static final int NONE = CompiledTrack.NONE;
+	
+	// The number of partitions per thread of the pool, so that the load is balanced
+	private static final int PARTITIONS_PER_THREAD = 4;
+	
+	private final CompiledTrack track;
+	private final SwitchSetting switches;
+	private final ForkJoinPool pool;
+	
+	// For each train: the section it is on, the slot it is heading towards, its distance from that
+	// slot, and its speed in meters per second
+	private int[] sections = new int[16];
+	private int[] towards = new int[16];
+	private double[] remaining = new double[16];
+	private double[] speeds = new double[16];
+	private int trainCount = 0;
+	
+	// The tasks that step each partition of the trains, and the task that runs them all
+	private final Partition[] partitions;
+	private final Tick tick = new Tick();
+	private double dt;
+	
+	// The total number of train steps taken, and the time spent taking them
+	private long trainSteps = 0;
+	private long stepNanos = 0;
+	
+	/**
+	 * Creates a simulation with no trains on the given track, which uses the common ForkJoinPool.
+	 * 
+	 * @param track - The track to simulate.
+	 * @param switches - The switch setting to obey when crossing junctions.
+	 * @throws NullPointerException If either parameter is null.
+	 */
+	public Simulation(CompiledTrack track, SwitchSetting switches) throws NullPointerException {
+		this(track, switches, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Creates a simulation with no trains on the given track, which uses the given pool.
+	 * 
+	 * @param track - The track to simulate.
+	 * @param switches - The switch setting to obey when crossing junctions.
+	 * @param pool - The pool to step the trains in.
+	 * @throws NullPointerException If any parameter is null.
+	 */
+	public Simulation(CompiledTrack track, SwitchSetting switches, ForkJoinPool pool)
+			throws NullPointerException {
+		if (track == null || switches == null || pool == null) {
+			throw new NullPointerException("Parameters may not be null.");
+		}
+		this.track = track;
+		this.switches = switches;
+		this.pool = pool;
+		
+		partitions = new Partition[pool.getParallelism() * PARTITIONS_PER_THREAD];
+		for (int i = 0; i < partitions.length; i++) {
+			partitions[i] = new Partition(i);
+		}
+	}
+	
+	/**
+	 * Steps all of the partitions.
+	 */
+	@SuppressWarnings("serial")
+	private final class Tick extends RecursiveAction {
+		
+		@Override
+		protected void compute() {
+			invokeAll(partitions);
+		}
+	}
+	
+	/**
+	 * Steps one of the equal-sized partitions of the trains.
+	 */
+	@SuppressWarnings("serial")
+	private final class Partition extends RecursiveAction {
+		
+		private final int index;
+		
+		Partition(int index) {
+			this.index = index;
+		}
+		
+		@Override
+		protected void compute() {
+			int from = (int) ((long) trainCount * index / partitions.length);
+			int to = (int) ((long) trainCount * (index + 1) / partitions.length);
+			for (int train = from; train < to; train++) {
+				step(train, dt);
+			}
+		}
+	}
+	
+	/**
+	 * Adds a train to the simulation.
+	 * 
+	 * @param location - Where the train starts, which must be on the track.
+	 * @param heading - The end-point of the location's section that the train is heading towards.
+	 * @param speed - The speed of the train, in meters per second.
+	 * @return The number of the train.
+	 * @throws IllegalArgumentException If the location is not on the track, heading is not an
+	 *         end-point of its section, or the speed is negative.
+	 */
+	public int addTrain(Location location, JunctionBranch heading, double speed)
+			throws IllegalArgumentException {
+		int section = track.sectionId(location.getSection());
+		if (section == NONE) {
+			throw new IllegalArgumentException("The location " + location + " is not on the track.");
+		} else if (!location.getSection().getEndPoints().contains(heading)) {
+			throw new IllegalArgumentException("The train must head towards an end-point of its"
+					+ " section.");
+		} else if (!(speed >= 0)) {
+			throw new IllegalArgumentException("The speed of a train cannot be negative.");
+		}
+		
+		if (trainCount == sections.length) {
+			int capacity = trainCount * 2;
+			sections = Arrays.copyOf(sections, capacity);
+			towards = Arrays.copyOf(towards, capacity);
+			remaining = Arrays.copyOf(remaining, capacity);
+			speeds = Arrays.copyOf(speeds, capacity);
+		}
+		int train = trainCount++;
+		sections[train] = section;
+		towards[train] = track.slot(heading);
+		remaining[train] = heading.equals(location.getEndPoint()) ? location.getOffset()
+				: track.length(section) - location.getOffset();
+		speeds[train] = speed;
+		return train;
+	}
+	
+	/**
+	 * Returns the number of trains in the simulation.
+	 * 
+	 * @return The number of trains.
+	 */
+	public int trainCount() {
+		return trainCount;
+	}
+	
+	/**
+	 * Returns the switch setting that trains obey when crossing junctions.
+	 * 
+	 * @return The switch setting of the simulation.
+	 */
+	public SwitchSetting getSwitches() {
+		return switches;
+	}
+	
+	/**
+	 * Sets the speed of a train.
+	 * 
+	 * @param train - The number of a train.
+	 * @param speed - Its new speed, in meters per second.
+	 * @throws IllegalArgumentException If the speed is negative.
+	 */
+	public void setSpeed(int train, double speed) throws IllegalArgumentException {
+		checkTrain(train);
+		if (!(speed >= 0)) {
+			throw new IllegalArgumentException("The speed of a train cannot be negative.");
+		}
+		speeds[train] = speed;
+	}
+	
+	/**
+	 * Returns the speed of a train, which is zero if it has stopped at the end of the track.
+	 * 
+	 * @param train - The number of a train.
+	 * @return Its speed, in meters per second.
+	 */
+	public double getSpeed(int train) {
+		checkTrain(train);
+		return speeds[train];
+	}
+	
+	/**
+	 * Returns the location of a train, rounded to the nearest meter.
+	 * 
+	 * @param train - The number of a train.
+	 * @return The location of the train.
+	 */
+	public Location getLocation(int train) {
+		checkTrain(train);
+		Section section = track.section(sections[train]);
+		int offset = (int) Math.round(remaining[train]);
+		if (offset >= section.getLength()) {
+			return new Location(section, track.endPoint(track.opposite(towards[train])), 0);
+		}
+		return new Location(section, track.endPoint(towards[train]), offset);
+	}
+	
+	/**
+	 * Returns the end-point that a train is heading towards.
+	 * 
+	 * @param train - The number of a train.
+	 * @return The end-point of the train's section that it is heading towards.
+	 */
+	public JunctionBranch getHeading(int train) {
+		checkTrain(train);
+		return track.endPoint(towards[train]);
+	}
+	
+	private void checkTrain(int train) {
+		if (train < 0 || train >= trainCount) {
+			throw new IndexOutOfBoundsException("There is no train " + train + ".");
+		}
+	}
+	
+	/**
+	 * Advances every train by the given number of seconds.
+	 * 
+	 * @param seconds - The length of the tick, in seconds.
+	 * @throws IllegalArgumentException If the tick is negative.
+	 */
+	public void step(double seconds) throws IllegalArgumentException {
+		if (!(seconds >= 0)) {
+			throw new IllegalArgumentException("A tick cannot be negative.");
+		}
+		long start = System.nanoTime();
+		dt = seconds;
+		tick.reinitialize();
+		for (Partition partition : partitions) {
+			partition.reinitialize();
+		}
+		pool.invoke(tick);
+		stepNanos += System.nanoTime() - start;
+		trainSteps += trainCount;
+	}
+	
+	/**
+	 * Advances one train by the given time.
+	 */
+	private void step(int train, double seconds) {
+		double left = speeds[train] * seconds;
+		if (left <= 0) {
+			return;
+		}
+		while (left > remaining[train]) {
+			left -= remaining[train];
+			
+			// Cross the junction at the end of the section, if there's anywhere to go
+			int arrival = towards[train];
+			int junction = CompiledTrack.junctionOf(arrival);
+			int exit = CompiledTrack.slot(junction,
+					(CompiledTrack.branchOf(arrival) == Branch.FACING)
+							? switches.getSetting(junction) : Branch.FACING);
+			int next = track.sectionAt(exit);
+			if (next == NONE) {
+				remaining[train] = 0;
+				speeds[train] = 0;
+				return;
+			}
+			sections[train] = next;
+			towards[train] = track.opposite(exit);
+			remaining[train] = track.length(next);
+		}
+		remaining[train] -= left;
+	}
+	
+	/**
+	 * Returns the number of trains stepped per second of wall-clock time, over all of the ticks
+	 * so far.
+	 * 
+	 * @return The throughput of the simulation, or zero if it hasn't been stepped.
+	 */
+	public double trainsSteppedPerSecond() {
+		return (stepNanos == 0) ? 0 : trainSteps * 1e9 / stepNanos;
+	}
+}
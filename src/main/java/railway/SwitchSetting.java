@@ -0,0 +1,27 @@
+package railway;
+
+/**
+ * The settings of the switches of the junctions of a compiled track, which determine where a
+ * train goes when it arrives at a junction on its FACING branch. See {@link TrackCursor}.
+ * 
+ * @author Addison Gourluck
+ */
+public interface SwitchSetting {
+	
+	/**
+	 * The setting with every switch set to NORMAL, even at a junction whose only branch beyond the
+	 * FACING branch is REVERSE, so a train arriving at such a junction on its FACING branch stops
+	 * there. This setting needs no track, but a {@link SwitchStates} should be used instead where
+	 * those junctions should be passable: it starts with their switches set to REVERSE.
+	 */
+	SwitchSetting ALL_NORMAL = junction -> Branch.NORMAL;
+	
+	/**
+	 * Returns the branch that a train arriving at the given junction on its FACING branch leaves
+	 * by. This is called for every junction crossed, so should be cheap and should not allocate.
+	 * 
+	 * @param junction - The number of a junction of the compiled track.
+	 * @return Either Branch.NORMAL or Branch.REVERSE.
+	 */
+	Branch getSetting(int junction);
+}
@@ -0,0 +1,282 @@
+package railway;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * <p>
+ * The current settings of the switches of the junctions of a compiled track, and a table of where
+ * a train goes next from each end-point under those settings.
+ * </p>
+ * 
+ * <p>
+ * A train arriving at a junction on its NORMAL or REVERSE branch leaves by the FACING branch, and a
+ * train arriving on the FACING branch leaves by whichever of the NORMAL and REVERSE branches the
+ * switch is set to. The settings are packed into a bitset (one bit per junction, set for REVERSE),
+ * and the branch left by and the section moved onto are kept in tables indexed by the slot that
+ * the train arrives on (see {@link CompiledTrack#slot(int, Branch)}), so following the track is a
+ * single array lookup. Throwing a switch updates the table entry for its FACING slot.
+ * </p>
+ * 
+ * <p>
+ * Initially, each switch is set to NORMAL, unless only its REVERSE branch is connected. The
+ * settings can be read from any number of threads while they are changed, without blocking. A
+ * batch of switches thrown together by {@link #throwSwitches(Map)} is applied under a single write
+ * lock, so each read is made either before the whole batch or after it.
+ * </p>
+ * 
+ * @author Addison Gourluck
+ */
+public final class SwitchStates implements SwitchSetting {
+	
+	private static final int NONE = CompiledTrack.NONE;
+	
+	private final CompiledTrack track;
+	
+	// One bit per junction, set if the switch is set to REVERSE
+	private final long[] reverse;
+	
+	// For each slot, the slot that a train arriving on it leaves by, and the section it moves onto
+	private final int[] exits;
+	private final int[] nextSections;
+	
+	// Writers hold the write lock; readers read optimistically, and retry under the read lock
+	private final StampedLock lock = new StampedLock();
+	
+	/*
+	 * invariant: for every junction j and branch b, exits[slot(j, b)] is slot(j, FACING) if b is
+	 * not FACING, and otherwise slot(j, REVERSE) if bit j of reverse is set, or slot(j, NORMAL) if
+	 * not; and nextSections[s] == track.sectionAt(exits[s]) for every slot s
+	 */
+	
+	/**
+	 * Creates the switch settings for the given track, with each switch in its initial setting.
+	 * 
+	 * @param track - The track whose switches are set.
+	 */
+	public SwitchStates(CompiledTrack track) {
+		this.track = track;
+		int junctions = track.junctionCount();
+		reverse = new long[(junctions + 63) >>> 6];
+		exits = new int[track.slotCount()];
+		nextSections = new int[track.slotCount()];
+		
+		for (int junction = 0; junction < junctions; junction++) {
+			int facing = CompiledTrack.slot(junction, Branch.FACING);
+			boolean normal = track.sectionAt(CompiledTrack.slot(junction, Branch.NORMAL)) != NONE;
+			boolean reversed = track.sectionAt(CompiledTrack.slot(junction, Branch.REVERSE)) != NONE;
+			for (Branch branch : Branch.values()) {
+				if (branch != Branch.FACING) {
+					int slot = CompiledTrack.slot(junction, branch);
+					exits[slot] = facing;
+					nextSections[slot] = track.sectionAt(facing);
+				}
+			}
+			apply(junction, (!normal && reversed) ? Branch.REVERSE : Branch.NORMAL);
+		}
+	}
+	
+	/**
+	 * Returns the track whose switches these are.
+	 * 
+	 * @return The compiled track.
+	 */
+	public CompiledTrack getTrack() {
+		return track;
+	}
+	
+	/**
+	 * Returns the branch that the switch of the given junction is set to.
+	 * 
+	 * @param junction - The number of a junction of the track.
+	 * @return Either Branch.NORMAL or Branch.REVERSE.
+	 * @throws IndexOutOfBoundsException If there is no junction with that number.
+	 */
+	@Override
+	public Branch getSetting(int junction) throws IndexOutOfBoundsException {
+		if (junction < 0 || junction >= track.junctionCount()) {
+			throw new IndexOutOfBoundsException("There is no junction " + junction + ".");
+		}
+		long stamp = lock.tryOptimisticRead();
+		long word = reverse[junction >>> 6];
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				word = reverse[junction >>> 6];
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		return ((word >>> junction) & 1) != 0 ? Branch.REVERSE : Branch.NORMAL;
+	}
+	
+	/**
+	 * Returns the branch that the switch of the given junction is set to.
+	 * 
+	 * @param junction - A junction on the track.
+	 * @return Either Branch.NORMAL or Branch.REVERSE.
+	 * @throws IllegalArgumentException If the junction is not on the track.
+	 */
+	public Branch getSetting(Junction junction) throws IllegalArgumentException {
+		return getSetting(junctionId(junction));
+	}
+	
+	/**
+	 * Returns the slot that a train arriving at a junction on the given slot leaves by.
+	 * 
+	 * @param slot - The slot that the train arrives on.
+	 * @return The slot that it leaves by.
+	 */
+	public int exit(int slot) {
+		return read(exits, slot);
+	}
+	
+	/**
+	 * Returns the number of the section that a train arriving at a junction on the given slot moves
+	 * onto, or NONE if there is no section on the branch it leaves by.
+	 * 
+	 * @param slot - The slot that the train arrives on.
+	 * @return The next section, or NONE.
+	 */
+	public int nextSection(int slot) {
+		return read(nextSections, slot);
+	}
+	
+	/**
+	 * Returns the section that a train arriving at the junction of the given end-point, on its
+	 * branch, moves onto, or null if there is no section on the branch it leaves by (or the
+	 * junction is not on the track).
+	 * 
+	 * @param arrival - The end-point that the train arrives at the junction by.
+	 * @return The next section, or null.
+	 */
+	public Section next(JunctionBranch arrival) {
+		int slot = track.slot(arrival);
+		int section = (slot == NONE) ? NONE : nextSection(slot);
+		return (section == NONE) ? null : track.section(section);
+	}
+	
+	private int read(int[] table, int slot) {
+		long stamp = lock.tryOptimisticRead();
+		int value = table[slot];
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				value = table[slot];
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		return value;
+	}
+	
+	/**
+	 * Sets the switch of the given junction.
+	 * 
+	 * @param junction - A junction on the track.
+	 * @param branch - Either Branch.NORMAL or Branch.REVERSE.
+	 * @throws IllegalArgumentException If the junction is not on the track, or the branch is not
+	 *         NORMAL or REVERSE.
+	 */
+	public void setSetting(Junction junction, Branch branch) throws IllegalArgumentException {
+		int id = junctionId(junction);
+		checkSetting(branch);
+		long stamp = lock.writeLock();
+		try {
+			apply(id, branch);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	/**
+	 * Sets the switches of all of the given junctions at once, so that no read sees part of the
+	 * batch applied. The batch is validated first, so if any junction or setting is invalid, no
+	 * switch is thrown.
+	 * 
+	 * @param settings - The new setting of each junction to change.
+	 * @throws NullPointerException If settings is null.
+	 * @throws IllegalArgumentException If any junction is not on the track, or any branch is not
+	 *         NORMAL or REVERSE.
+	 */
+	public void throwSwitches(Map<Junction, Branch> settings)
+			throws NullPointerException, IllegalArgumentException {
+		List<Integer> ids = new ArrayList<>(settings.size());
+		List<Branch> branches = new ArrayList<>(settings.size());
+		for (Map.Entry<Junction, Branch> setting : settings.entrySet()) {
+			ids.add(junctionId(setting.getKey()));
+			checkSetting(setting.getValue());
+			branches.add(setting.getValue());
+		}
+		long stamp = lock.writeLock();
+		try {
+			for (int i = 0; i < ids.size(); i++) {
+				apply(ids.get(i), branches.get(i));
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	/**
+	 * Sets a switch, and updates the entries of the table for its FACING slot. The write lock must
+	 * be held (unless the states are still being constructed).
+	 */
+	private void apply(int junction, Branch branch) {
+		if (branch == Branch.REVERSE) {
+			reverse[junction >>> 6] |= 1L << junction;
+		} else {
+			reverse[junction >>> 6] &= ~(1L << junction);
+		}
+		int facing = CompiledTrack.slot(junction, Branch.FACING);
+		int exit = CompiledTrack.slot(junction, branch);
+		exits[facing] = exit;
+		nextSections[facing] = track.sectionAt(exit);
+	}
+	
+	private int junctionId(Junction junction) {
+		int id = (junction == null) ? NONE : track.junctionId(junction);
+		if (id == NONE) {
+			throw new IllegalArgumentException("The junction " + junction
+					+ " is not on the track.");
+		}
+		return id;
+	}
+	
+	private static void checkSetting(Branch branch) {
+		if (branch != Branch.NORMAL && branch != Branch.REVERSE) {
+			throw new IllegalArgumentException("A switch can only be set to NORMAL or REVERSE.");
+		}
+	}
+	
+	/**
+	 * Determines whether this class is internally consistent (i.e. it satisfies its class
+	 * invariant).
+	 * 
+	 * This method is only intended for testing purposes.
+	 * 
+	 * @return true if this class is internally consistent, and false otherwise.
+	 */
+	public boolean checkInvariant() {
+		long stamp = lock.readLock();
+		try {
+			for (int junction = 0; junction < track.junctionCount(); junction++) {
+				boolean isReverse = ((reverse[junction >>> 6] >>> junction) & 1) != 0;
+				for (Branch branch : Branch.values()) {
+					int slot = CompiledTrack.slot(junction, branch);
+					Branch exit = (branch != Branch.FACING) ? Branch.FACING
+							: isReverse ? Branch.REVERSE : Branch.NORMAL;
+					if (exits[slot] != CompiledTrack.slot(junction, exit)
+							|| nextSections[slot] != track.sectionAt(exits[slot])) {
+						return false;
+					}
+				}
+			}
+			return true;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+}
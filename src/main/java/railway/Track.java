@@ -1,8 +1,33 @@
 package railway;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * <p>
@@ -22,8 +47,50 @@ import java.util.Set;
  */
 public class Track implements Iterable<Section> {
 	
+	// The number of sections above which checkInvariant checks them in parallel
+	private static final int PARALLEL_CHECK = 1 << 14;
+	
 	Set<Section> sections = new HashSet<>();
 	
+	// Every end-point of every section in the track, mapped to the section that occupies it
+	Map<JunctionBranch, Section> endPoints = new HashMap<>();
+	
+	// Every junction on the track, mapped to the number of its branches that are connected
+	Map<Junction, Integer> degrees = new HashMap<>();
+	private final Set<Junction> junctions = Collections.unmodifiableSet(degrees.keySet());
+	
+	// The compiled form of the track, or null if the track has changed since it was compiled
+	private CompiledTrack compiled;
+	
+	// The sections of the track in an array, for streams, or null if the track has changed since
+	private Section[] sectionArray;
+	
+	// The number of landmarks used to guide route searches, and the landmarks last used
+	private int landmarkCount = 0;
+	private Landmarks landmarks;
+	
+	// The number of times the track has been modified
+	private long version = 0;
+	
+	// A persistent copy of endPoints for snapshot(), or null until the first snapshot is taken
+	private PersistentHashMap<JunctionBranch, Section> versioned;
+	
+	// The listeners to tell about each change to the track
+	private final List<TrackListener> listeners = new CopyOnWriteArrayList<>();
+	
+	// The junctions changed since the invariant was last checked, or null if it has never been
+	private Set<Junction> touched;
+	
+	// The connected components of the track, or null until they are first asked about
+	private Connectivity connectivity;
+	
+	/*
+	 * invariant: each section in sections is valid, and is mapped to by each of its end-points in
+	 * endPoints, which holds nothing else (so no end-point is used by more than one section); and
+	 * degrees maps each junction on the track to the number of its end-points in endPoints, which
+	 * is between one and three
+	 */
+	
 	/**
 	 * Creates a new track with no sections.
 	 */
@@ -65,14 +132,108 @@ public class Track implements Iterable<Section> {
 	 *         given branch.) Two end-points are the considered to be the same if they are
 	 *         equivalent according to the equals method of the JunctionBranch class.
 	 */
-	public void addSection(Section section) throws NullPointerException, IllegalArgumentException {
-		if (section == null) {
-			throw new NullPointerException("Cannot add a null section to the track.");
+	public void addSection(Section section) throws NullPointerException, InvalidTrackException {
+		TrackRules.checkNotNull(section);
+		if (sections.contains(section)) {
+			return;
+		}
+		TrackRules.checkEndPoints(section, endPoints::get);
+		link(section);
+		publish(Collections.singletonList(section), Collections.<Section>emptyList());
+	}
+	
+	/**
+	 * <p>
+	 * Adds all of the given sections to the track, unless the addition of any of them would result
+	 * in the track becoming invalid, in which case the track is not modified at all.
+	 * </p>
+	 * 
+	 * <p>
+	 * The whole batch is validated before the track is changed. Sections that are already in the
+	 * track, or that appear more than once in the batch, are ignored as they would be by
+	 * addSection. Otherwise, no two sections (either in the batch, or in the batch and the track)
+	 * may be connected to the same end-point.
+	 * </p>
+	 * 
+	 * @param batch - The sections to be added to the track.
+	 * @throws NullPointerException If batch is null, or contains a null section.
+	 * @throws InvalidTrackException If adding the sections would result in a junction being
+	 *         connected to more than one section on the same branch.
+	 */
+	public void addSections(Collection<Section> batch)
+			throws NullPointerException, InvalidTrackException {
+		Set<Section> additions = TrackRules.checkBatch(batch, sections::contains, endPoints::get);
+		for (Section section : additions) {
+			link(section);
+		}
+		if (!additions.isEmpty()) {
+			publish(new ArrayList<>(additions), Collections.<Section>emptyList());
+		}
+	}
+	
+	/**
+	 * <p>
+	 * Reads sections from the given reader, in the format written by toString(), and adds them to
+	 * the track as if by addSections. Blank lines are ignored, and the junctions read are
+	 * interned.
+	 * </p>
+	 * 
+	 * <p>
+	 * If any line is malformed, a TrackFormatException describing every malformed line (with its
+	 * line number) is thrown, and the track is not modified.
+	 * </p>
+	 * 
+	 * @param reader - The reader to read the sections from.
+	 * @throws IOException If the reader throws an IOException.
+	 * @throws TrackFormatException If any line is not the string representation of a section.
+	 * @throws InvalidTrackException If adding the sections would make the track invalid.
+	 */
+	public void load(Reader reader) throws IOException, InvalidTrackException {
+		addSections(TrackLoader.read(reader));
+	}
+	
+	/**
+	 * Reads sections from the given UTF-8 encoded file, in the format written by toString(), and
+	 * adds them to the track as if by load(Reader). The file is memory-mapped in chunks, which are
+	 * parsed in parallel, so that large files can be loaded quickly. If the name of the file ends
+	 * with ".gz", it is decompressed with gzip (and read sequentially) instead.
+	 * 
+	 * @param path - The file to read the sections from.
+	 * @throws IOException If the file can't be read.
+	 * @throws TrackFormatException If any line is not the string representation of a section.
+	 * @throws InvalidTrackException If adding the sections would make the track invalid.
+	 */
+	public void load(Path path) throws IOException, InvalidTrackException {
+		load(path, TrackLoader.CHUNK_SIZE);
+	}
+	
+	/**
+	 * Reads sections from the given file as load(Path) does, but maps and parses it in chunks of
+	 * about the given size (in bytes) rather than the default of 32 MB. Smaller chunks spread a
+	 * file over more threads, at the cost of more mappings. This is mostly useful for tuning, and
+	 * for testing how lines that straddle chunks are read. Compressed files are not read in
+	 * chunks, so the size is only checked.
+	 * 
+	 * @param path - The file to read the sections from.
+	 * @param chunkSize - The approximate size of each chunk, in bytes.
+	 * @throws IOException If the file can't be read.
+	 * @throws TrackFormatException If any line is not the string representation of a section.
+	 * @throws InvalidTrackException If adding the sections would make the track invalid.
+	 * @throws IllegalArgumentException If chunkSize is not positive.
+	 */
+	public void load(Path path, int chunkSize)
+			throws IOException, InvalidTrackException, IllegalArgumentException {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("The chunk size must be positive.");
+		} else if (isCompressed(path)) {
+			try (InputStream file = Files.newInputStream(path);
+					InputStream gzip = new GZIPInputStream(file, 1 << 16);
+					Reader reader = new InputStreamReader(gzip, StandardCharsets.UTF_8)) {
+				load(reader);
+			}
+		} else {
+			addSections(TrackLoader.read(path, chunkSize));
 		}
-		
-		// TODO - 1337 haxxor checking to make sure ain't nothing being violated
-		
-		sections.add(section);
 	}
 	
 	/**
@@ -82,7 +243,96 @@ public class Track implements Iterable<Section> {
 	 * @param section - The section to be removed from the track.
 	 */
 	public void removeSection(Section section) {
-		sections.remove(section);
+		if (sections.remove(section)) {
+			compiled = null;
+			sectionArray = null;
+			version++;
+			if (touched != null) {
+				touched.addAll(section.getJunctions());
+			}
+			if (connectivity != null) {
+				connectivity.remove(section);
+			}
+			for (JunctionBranch endPoint : section.getEndPoints()) {
+				endPoints.remove(endPoint);
+				if (versioned != null) {
+					versioned = versioned.minus(endPoint);
+				}
+				degrees.computeIfPresent(endPoint.getJunction(),
+						(junction, degree) -> degree == 1 ? null : degree - 1);
+			}
+			publish(Collections.<Section>emptyList(), Collections.singletonList(section));
+		}
+	}
+	
+	/**
+	 * Tells the listeners about a change to the track, if there are any.
+	 */
+	private void publish(List<Section> added, List<Section> removed) {
+		if (!listeners.isEmpty()) {
+			TrackChange change = new TrackChange(version, added, removed);
+			for (TrackListener listener : listeners) {
+				listener.trackChanged(change);
+			}
+		}
+	}
+	
+	/**
+	 * <p>
+	 * Registers a listener to be told about each later change to the track. Each call to
+	 * addSection, addSections (or load) or removeSection that changes the track is reported as one
+	 * TrackChange, after the change has been made, and with the version number of the track
+	 * afterwards.
+	 * </p>
+	 * 
+	 * <p>
+	 * Listeners are called on the thread that changes the track. To consume changes on another
+	 * thread, or in batches, register a {@link TrackChangeQueue}.
+	 * </p>
+	 * 
+	 * @param listener - The listener to register.
+	 * @throws NullPointerException If listener is null.
+	 */
+	public void addTrackListener(TrackListener listener) throws NullPointerException {
+		if (listener == null) {
+			throw new NullPointerException("Cannot add a null listener to the track.");
+		}
+		listeners.add(listener);
+	}
+	
+	/**
+	 * Stops telling the given listener about changes to the track. If the listener was registered
+	 * more than once, only one registration is removed.
+	 * 
+	 * @param listener - The listener to remove.
+	 */
+	public void removeTrackListener(TrackListener listener) {
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * Adds a section that has already been validated to the track and its indexes.
+	 * 
+	 * @param section - The section to add.
+	 */
+	private void link(Section section) {
+		compiled = null;
+		sectionArray = null;
+		version++;
+		sections.add(section);
+		if (touched != null) {
+			touched.addAll(section.getJunctions());
+		}
+		for (JunctionBranch endPoint : section.getEndPoints()) {
+			endPoints.put(endPoint, section);
+			if (versioned != null) {
+				versioned = versioned.plus(endPoint, section);
+			}
+			degrees.merge(endPoint.getJunction(), 1, Integer::sum);
+		}
+		if (connectivity != null) {
+			connectivity.add(section);
+		}
 	}
 	
 	/**
@@ -99,17 +349,28 @@ public class Track implements Iterable<Section> {
 	 * Returns a set of all the junctions in the track that are connected to at least one section of
 	 * the track.
 	 * 
+	 * <p>
+	 * The returned set is an unmodifiable view, which reflects later changes to the track.
+	 * </p>
+	 * 
 	 * @return The set of all junctions in this track.
 	 */
 	public Set<Junction> getJunctions() {
-		// Because optimization isn't important
-		Set<Junction> junctions = new HashSet<>();
-		for (Section section : sections) {
-			junctions.addAll(section.getJunctions());
-		}
 		return junctions;
 	}
 	
+	/**
+	 * Returns the number of branches of the given junction that are connected to sections of the
+	 * track. This is zero if the junction is not on the track, and at most three otherwise.
+	 * 
+	 * @param junction - The junction whose branches will be counted.
+	 * @return The number of sections connected to the junction, counting a loop section twice.
+	 */
+	public int getDegree(Junction junction) {
+		Integer degree = degrees.get(junction);
+		return (degree == null) ? 0 : degree;
+	}
+	
 	/**
 	 * If the track contains a section that is connected to the given junction on the given branch,
 	 * then it returns that section, otherwise it returns null.
@@ -120,20 +381,180 @@ public class Track implements Iterable<Section> {
 	 *         is one, otherwise null
 	 */
 	public Section getTrackSection(Junction junction, Branch branch) {
-		for (Section section : sections) {
-			// For each section...
-			if (section.getJunctions().contains(junction)) {
-				// If it is connected to the junction in question...
-				for (JunctionBranch junctionBranch : section.getEndPoints()) {
-					// Check each of this sections endpoints...
-					if (junctionBranch.getBranch().equals(branch)) {
-						// And return it if it is on that branch
-						return section;
-					}
-				}
+		if (junction == null || branch == null) {
+			return null;
+		}
+		if (junction.isInterned()) {
+			return endPoints.get(JunctionBranch.of(junction, branch));
+		}
+		return endPoints.get(new JunctionBranch(junction, branch));
+	}
+	
+	/**
+	 * <p>
+	 * Returns true iff both junctions are on the track, and there is a path of sections between
+	 * them (ignoring the switch rules, which may still rule out a route between them).
+	 * </p>
+	 * 
+	 * <p>
+	 * The connected components of the track are indexed the first time this (or components()) is
+	 * called, and the index is then kept up to date by each modification: adding a section takes
+	 * near-constant time, and removing one marks its component to be rebuilt at the next query, so
+	 * that queries don't need to search the track.
+	 * </p>
+	 * 
+	 * @param a - A junction.
+	 * @param b - Another junction.
+	 * @return True iff the junctions are connected by the track.
+	 */
+	public boolean connected(Junction a, Junction b) {
+		if (a == null || b == null) {
+			return false;
+		}
+		return connectivity().connected(a, b);
+	}
+	
+	/**
+	 * Returns the connected components of the track: the sets of junctions that are connected to
+	 * each other by sections of the track, in no particular order. See connected(Junction,
+	 * Junction).
+	 * 
+	 * @return A list of the components, each an unmodifiable set of junctions, which are not
+	 *         affected by later changes to the track.
+	 */
+	public List<Set<Junction>> components() {
+		return connectivity().components();
+	}
+	
+	/**
+	 * Returns the junction that represents the connected component of the given junction, which is
+	 * the same for every junction of the component until the track is next modified. See
+	 * connected(Junction, Junction).
+	 * 
+	 * @param junction - A junction.
+	 * @return The representative of the junction's component, or null if it is not on the track.
+	 */
+	Junction component(Junction junction) {
+		return (junction == null) ? null : connectivity().representative(junction);
+	}
+	
+	private Connectivity connectivity() {
+		if (connectivity == null) {
+			connectivity = new Connectivity(this);
+		}
+		return connectivity;
+	}
+	
+	/**
+	 * Returns an immutable, array-based snapshot of the current layout of the track. The snapshot is
+	 * cached, so repeated calls return the same instance until the track is next modified.
+	 * 
+	 * @return The compiled form of this track.
+	 */
+	public CompiledTrack compile() {
+		if (compiled == null) {
+			compiled = new CompiledTrack(sections);
+		}
+		return compiled;
+	}
+	
+	/**
+	 * <p>
+	 * Returns an immutable view of the current version of the track, which is unaffected by later
+	 * changes to the track. Unlike iterating over the track itself, reading the view (from any
+	 * thread) gives a consistent picture of the layout, however long it takes.
+	 * </p>
+	 * 
+	 * <p>
+	 * Views share their structure with the track through a persistent map, so a view is taken in
+	 * constant time and without copying the track; the persistent map is built the first time a
+	 * view is taken, and is then kept up to date by each modification at a cost of O(log n). Views
+	 * that are no longer referenced are reclaimed by the garbage collector.
+	 * </p>
+	 * 
+	 * @return A view of the current version of the track.
+	 */
+	public TrackVersion snapshot() {
+		if (versioned == null) {
+			PersistentHashMap<JunctionBranch, Section> map = PersistentHashMap.empty();
+			for (Map.Entry<JunctionBranch, Section> entry : endPoints.entrySet()) {
+				map = map.plus(entry.getKey(), entry.getValue());
 			}
+			versioned = map;
+		}
+		return new TrackVersion(versioned, version);
+	}
+	
+	/**
+	 * Saves the current layout of the track to a file in the binary snapshot format, which can be
+	 * opened much more quickly than the textual format. See {@link TrackSnapshot}.
+	 * 
+	 * @param path - The file to write to, which is replaced if it exists.
+	 * @throws IOException If the file can't be written.
+	 */
+	public void writeSnapshot(Path path) throws IOException {
+		TrackSnapshot.write(compile(), path);
+	}
+	
+	/**
+	 * <p>
+	 * Returns the shortest route along the track from one location to another, or null if there
+	 * is no such route.
+	 * </p>
+	 * 
+	 * <p>
+	 * A route must obey the switch rules: a train arriving at a junction on its NORMAL or REVERSE
+	 * branch can only leave by its FACING branch, and a train arriving on its FACING branch can
+	 * leave by either its NORMAL or REVERSE branch. A route may start and end part-way along a
+	 * section, and a train that starts part-way along a section, or at a junction, may set off in
+	 * either direction.
+	 * </p>
+	 * 
+	 * <p>
+	 * If a landmark count has been set, the search is guided by that many landmarks. They are
+	 * chosen by the first search, and kept while they stay on the track, but their distances are
+	 * computed again for each version of the track.
+	 * </p>
+	 * 
+	 * @param from - The location that the route starts from.
+	 * @param to - The location that the route ends at.
+	 * @return The shortest route from the first location to the second, or null if either location
+	 *         is not on the track or there is no route between them.
+	 * @throws NullPointerException If either location is null.
+	 */
+	public Route shortestRoute(Location from, Location to) throws NullPointerException {
+		CompiledTrack track = compile();
+		if (landmarkCount == 0) {
+			return track.shortestRoute(from, to, null);
+		}
+		landmarks = track.landmarks(landmarkCount, landmarks);
+		return track.shortestRoute(from, to, landmarks);
+	}
+	
+	/**
+	 * <p>
+	 * Sets the number of landmarks used to guide shortestRoute. Landmarks cost count * 4 bytes per
+	 * junction, but make searches between distant locations much faster. A count of zero turns off
+	 * the guidance.
+	 * </p>
+	 * 
+	 * <p>
+	 * Every change to the track discards its compiled form, and the landmarks with it, so the first
+	 * shortestRoute after a change searches the whole track once per landmark to rebuild them.
+	 * These searches run in parallel when the previous landmarks are all still on the track, and
+	 * one after another when the landmarks must be chosen again (as they are the first time, or
+	 * after one is removed). A track that changes between most route searches may be faster
+	 * without landmarks.
+	 * </p>
+	 * 
+	 * @param count - The number of landmarks to use.
+	 * @throws IllegalArgumentException If count is negative.
+	 */
+	public void setLandmarkCount(int count) throws IllegalArgumentException {
+		if (count < 0) {
+			throw new IllegalArgumentException("The number of landmarks cannot be negative.");
 		}
-		return null;
+		landmarkCount = count;
 	}
 	
 	/**
@@ -145,6 +566,46 @@ public class Track implements Iterable<Section> {
 		return sections.iterator();
 	}
 	
+	/**
+	 * <p>
+	 * Returns a spliterator over the sections in the track as they are now, which is unaffected by
+	 * later changes to the track.
+	 * </p>
+	 * 
+	 * <p>
+	 * The spliterator covers an array of the sections, which is cached until the track is next
+	 * modified, so it knows its exact size and splits into exact halves (it is SIZED, SUBSIZED,
+	 * IMMUTABLE, DISTINCT and NONNULL, but not ORDERED), and parallel streams over it balance well.
+	 * </p>
+	 */
+	@Override
+	public Spliterator<Section> spliterator() {
+		if (sectionArray == null) {
+			sectionArray = sections.toArray(new Section[sections.size()]);
+		}
+		return Spliterators.spliterator(sectionArray,
+				Spliterator.IMMUTABLE | Spliterator.DISTINCT | Spliterator.NONNULL);
+	}
+	
+	/**
+	 * Returns a sequential stream of the sections in the track as they are now. See spliterator().
+	 * 
+	 * @return A stream of the sections in the track.
+	 */
+	public Stream<Section> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+	
+	/**
+	 * Returns a parallel stream of the sections in the track as they are now, which is split evenly
+	 * across the common ForkJoinPool. See spliterator().
+	 * 
+	 * @return A parallel stream of the sections in the track.
+	 */
+	public Stream<Section> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+	
 	/**
 	 * The string representation of a track contains a line-separated concatenation of the string
 	 * representations of the sections that make up the track. The sections can appear in any order.
@@ -155,29 +616,211 @@ public class Track implements Iterable<Section> {
 	@Override
 	public String toString() {
 		StringBuilder stringy = new StringBuilder();
-		
+		try {
+			writeTo(stringy, false);
+		} catch (IOException e) {
+			throw new AssertionError(e); // a StringBuilder never throws
+		}
+		return stringy.toString();
+	}
+	
+	/**
+	 * <p>
+	 * Writes the string representation of the track (see toString()) to the given appendable, one
+	 * section at a time, so that the whole representation is never held in memory.
+	 * </p>
+	 * 
+	 * <p>
+	 * If sorted is true, the sections are written in a deterministic order (by their end-points'
+	 * junction identifiers and branches, and then by length), with the lesser end-point of each
+	 * section written first, so that the output only depends on the layout of the track. This
+	 * makes exports of the same layout identical, and exports of similar layouts easy to compare.
+	 * </p>
+	 * 
+	 * @param out - The appendable to write to.
+	 * @param sorted - Whether to write the sections in a deterministic order.
+	 * @throws IOException If the appendable throws an IOException.
+	 */
+	public void writeTo(Appendable out, boolean sorted) throws IOException {
+		String separator = System.getProperty("line.separator");
 		Iterator<Section> itsy = iterator();
+		if (sorted) {
+			Section[] ordered = sections.toArray(new Section[sections.size()]);
+			Arrays.sort(ordered, Track::compareSections);
+			itsy = Arrays.asList(ordered).iterator();
+		}
 		while (itsy.hasNext()) {
 			Section section = itsy.next();
-			stringy.append(section.toString());
-			if (itsy.hasNext()) {
-				stringy.append(System.getProperty("line.separator"));
+			if (sorted) {
+				JunctionBranch first = section.getFirstEndPoint();
+				JunctionBranch second = section.getSecondEndPoint();
+				if (JunctionBranch.compare(first, second) > 0) {
+					JunctionBranch swap = first;
+					first = second;
+					second = swap;
+				}
+				out.append(Integer.toString(section.getLength())).append(' ')
+						.append(first.toString()).append(' ').append(second.toString());
 			} else {
-				break;
+				out.append(section.toString());
+			}
+			if (itsy.hasNext()) {
+				out.append(separator);
 			}
 		}
-		return stringy.toString();
 	}
 	
 	/**
+	 * <p>
+	 * Writes the string representation of the track (see writeTo(Appendable, boolean)) to the given
+	 * file in UTF-8, through a buffer, replacing the file if it exists. If the name of the file ends
+	 * with ".gz", the file is compressed with gzip.
+	 * </p>
+	 * 
+	 * <p>
+	 * The file can be read back with load(Path).
+	 * </p>
+	 * 
+	 * @param path - The file to write to.
+	 * @param sorted - Whether to write the sections in a deterministic order.
+	 * @throws IOException If the file can't be written.
+	 */
+	public void writeTo(Path path, boolean sorted) throws IOException {
+		// Each stream is closed even if the next one can't be opened
+		try (OutputStream file = Files.newOutputStream(path);
+				OutputStream stream = isCompressed(path) ? new GZIPOutputStream(file, 1 << 16)
+						: file;
+				Writer out = new BufferedWriter(
+						new OutputStreamWriter(stream, StandardCharsets.UTF_8), 1 << 16)) {
+			writeTo(out, sorted);
+		}
+	}
+	
+	/**
+	 * Returns true if the given file is (or should be) compressed with gzip.
+	 */
+	private static boolean isCompressed(Path path) {
+		return path.getFileName() != null && path.getFileName().toString().endsWith(".gz");
+	}
+	
+	/**
+	 * Orders sections by their lesser end-points, then by their greater end-points, then by their
+	 * lengths.
+	 */
+	private static int compareSections(Section a, Section b) {
+		JunctionBranch a1 = a.getFirstEndPoint();
+		JunctionBranch a2 = a.getSecondEndPoint();
+		JunctionBranch b1 = b.getFirstEndPoint();
+		JunctionBranch b2 = b.getSecondEndPoint();
+		if (JunctionBranch.compare(a1, a2) > 0) {
+			JunctionBranch swap = a1;
+			a1 = a2;
+			a2 = swap;
+		}
+		if (JunctionBranch.compare(b1, b2) > 0) {
+			JunctionBranch swap = b1;
+			b1 = b2;
+			b2 = swap;
+		}
+		int result = JunctionBranch.compare(a1, b1);
+		if (result == 0) {
+			result = JunctionBranch.compare(a2, b2);
+		}
+		return (result != 0) ? result : Integer.compare(a.getLength(), b.getLength());
+	}
+	
+	/**
+	 * <p>
 	 * Determines whether this class is internally consistent (i.e. it satisfies its class
-	 * invariant).
+	 * invariant): every section is valid and is connected to the track at both of its end-points;
+	 * no end-point is used by more than one section; and each junction on the track has between one
+	 * and three branches connected to sections.
+	 * </p>
 	 * 
-	 * This method is only intended for testing purposes.
+	 * <p>
+	 * This takes time proportional to the size of the track, and large tracks are checked in
+	 * parallel. See checkInvariantIncrementally() for a check that is cheap enough to make after
+	 * every change.
+	 * </p>
 	 * 
 	 * @return true if this class is internally consistent, and false otherwise.
 	 */
 	public boolean checkInvariant() {
-		return true; // TODO - REMOVE THIS LINE AND WRITE THIS METHOD
+		boolean parallel = sections.size() > PARALLEL_CHECK;
+		boolean valid = endPoints.size() == 2 * sections.size()
+				&& (parallel ? sections.parallelStream() : sections.stream())
+						.allMatch(this::checkSection)
+				&& (parallel ? degrees.keySet().parallelStream() : degrees.keySet().stream())
+						.allMatch(this::checkJunction);
+		if (valid) {
+			touched = new HashSet<>();
+		}
+		return valid;
+	}
+	
+	/**
+	 * <p>
+	 * Determines whether the class invariant still holds, by only checking the junctions (and their
+	 * sections) that have changed since the invariant was last successfully checked. If it has never
+	 * been checked, the whole track is checked, as by checkInvariant().
+	 * </p>
+	 * 
+	 * <p>
+	 * Once the invariant has been checked, the track keeps a note of the junctions that each change
+	 * touches, so this check takes time proportional to the size of the changes since the last one.
+	 * </p>
+	 * 
+	 * @return true if this class is internally consistent, and false otherwise.
+	 */
+	public boolean checkInvariantIncrementally() {
+		if (touched == null) {
+			return checkInvariant();
+		}
+		if (endPoints.size() != 2 * sections.size()) {
+			return false;
+		}
+		for (Junction junction : touched) {
+			if (!checkJunction(junction)) {
+				return false;
+			}
+			for (Branch branch : Branch.values()) {
+				Section section = getTrackSection(junction, branch);
+				if (section != null && !(sections.contains(section) && checkSection(section))) {
+					return false;
+				}
+			}
+		}
+		touched.clear();
+		return true;
+	}
+	
+	/**
+	 * Checks that the section is valid, and is connected to the track at both of its end-points.
+	 */
+	private boolean checkSection(Section section) {
+		if (section == null || !section.checkInvariant()) {
+			return false;
+		}
+		JunctionBranch first = section.getFirstEndPoint();
+		JunctionBranch second = section.getSecondEndPoint();
+		// A loop section must use two different branches of its junction
+		return !first.equals(second) && endPoints.get(first) == section
+				&& endPoints.get(second) == section && degrees.containsKey(first.getJunction())
+				&& degrees.containsKey(second.getJunction());
+	}
+	
+	/**
+	 * Checks that the recorded degree of the junction matches the number of its end-points that are
+	 * connected to sections, and that a junction is only recorded while it is on the track.
+	 */
+	private boolean checkJunction(Junction junction) {
+		int connected = 0;
+		for (Branch branch : Branch.values()) {
+			if (getTrackSection(junction, branch) != null) {
+				connected++;
+			}
+		}
+		Integer degree = degrees.get(junction);
+		return (degree == null) ? connected == 0 : (degree >= 1 && degree == connected);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,81 @@
+package railway;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable batch of changes to the sections of a track: the sections that were added, the
+ * sections that were removed, and the version number of the track afterwards.
+ * 
+ * @author Addison Gourluck
+ */
+public final class TrackChange {
+	
+	private final long version;
+	private final List<Section> added;
+	private final List<Section> removed;
+	
+	/*
+	 * invariant: added != null && removed != null, and no section is in both
+	 */
+	
+	/**
+	 * Creates a new change.
+	 * 
+	 * @param version - The version number of the track after the change.
+	 * @param added - The sections that were added, which the change takes ownership of.
+	 * @param removed - The sections that were removed, which the change takes ownership of.
+	 */
+	TrackChange(long version, List<Section> added, List<Section> removed) {
+		this.version = version;
+		this.added = Collections.unmodifiableList(added);
+		this.removed = Collections.unmodifiableList(removed);
+	}
+	
+	/**
+	 * Returns the version number of the track after the change (see
+	 * {@link TrackVersion#getVersion()}). Version numbers only ever increase, so a consumer can
+	 * tell which of two changes happened later.
+	 * 
+	 * @return The version number of the track after the change.
+	 */
+	public long getVersion() {
+		return version;
+	}
+	
+	/**
+	 * Returns the sections that were added to the track.
+	 * 
+	 * @return An unmodifiable list of the sections added.
+	 */
+	public List<Section> getAdded() {
+		return added;
+	}
+	
+	/**
+	 * Returns the sections that were removed from the track.
+	 * 
+	 * @return An unmodifiable list of the sections removed.
+	 */
+	public List<Section> getRemoved() {
+		return removed;
+	}
+	
+	/**
+	 * Returns true if no sections were added or removed (which can happen when changes are merged
+	 * by a TrackChangeQueue and cancel each other out).
+	 * 
+	 * @return True iff the change added and removed nothing.
+	 */
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty();
+	}
+	
+	/**
+	 * Returns a string of the form "VERSION +[ADDED] -[REMOVED]".
+	 */
+	@Override
+	public String toString() {
+		return String.format("%d +%s -%s", version, added, removed);
+	}
+}
@@ -0,0 +1,87 @@
+package railway;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * A listener that collects the changes to a track until a consumer (possibly on another thread)
+ * asks for them, merging them into a single batch.
+ * </p>
+ * 
+ * <p>
+ * The queue handles a consumer that can't keep up by conflation rather than by blocking the
+ * track's writers: a section that is added and then removed before the consumer asks (or
+ * vice-versa) simply drops out of the batch, so the queue never holds more than the net change
+ * since the consumer last asked, however many changes were made.
+ * </p>
+ * 
+ * @author Addison Gourluck
+ */
+public final class TrackChangeQueue implements TrackListener {
+	
+	private final Set<Section> added = new LinkedHashSet<>();
+	private final Set<Section> removed = new LinkedHashSet<>();
+	private long version = -1;
+	private boolean pending = false;
+	
+	/**
+	 * Merges the given change into the pending batch.
+	 */
+	@Override
+	public synchronized void trackChanged(TrackChange change) {
+		for (Section section : change.getRemoved()) {
+			if (!added.remove(section)) {
+				removed.add(section);
+			}
+		}
+		for (Section section : change.getAdded()) {
+			if (!removed.remove(section)) {
+				added.add(section);
+			}
+		}
+		version = Math.max(version, change.getVersion());
+		pending = true;
+		notifyAll();
+	}
+	
+	/**
+	 * Returns and clears the pending batch of changes, or returns null if the track hasn't changed
+	 * since the last batch was taken.
+	 * 
+	 * @return The net change since the last batch was taken, or null.
+	 */
+	public synchronized TrackChange poll() {
+		if (!pending) {
+			return null;
+		}
+		TrackChange change = new TrackChange(version, new ArrayList<>(added),
+				new ArrayList<>(removed));
+		added.clear();
+		removed.clear();
+		pending = false;
+		return change;
+	}
+	
+	/**
+	 * Returns and clears the pending batch of changes, waiting up to the given time for the track to
+	 * change if it hasn't already.
+	 * 
+	 * @param timeout - How long to wait.
+	 * @param unit - The unit of the timeout.
+	 * @return The net change since the last batch was taken, or null if the track didn't change
+	 *         before the timeout.
+	 * @throws InterruptedException If the thread is interrupted while waiting.
+	 */
+	public synchronized TrackChange poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		long left = unit.toNanos(timeout);
+		while (!pending && left > 0) {
+			TimeUnit.NANOSECONDS.timedWait(this, left);
+			left = deadline - System.nanoTime();
+		}
+		return poll();
+	}
+}
@@ -0,0 +1,201 @@
+package railway;
+
+/**
+ * <p>
+ * A mutable position on a compiled track, which can be moved along the track without allocating,
+ * unlike {@link Location}, which must be recreated for every move.
+ * </p>
+ * 
+ * <p>
+ * A cursor is on a section, heading towards one of its end-points, at some distance from that
+ * end-point. Advancing the cursor moves it towards that end-point, and on through the junctions it
+ * reaches: a cursor arriving on a NORMAL or REVERSE branch leaves by the FACING branch, and a cursor
+ * arriving on the FACING branch leaves by whichever branch the switch setting gives. A cursor that
+ * reaches an end-point with nowhere to go stops there. The cursor only converts to and from
+ * Locations when asked to.
+ * </p>
+ * 
+ * <p>
+ * A cursor is not thread-safe.
+ * </p>
+ * 
+ * @author Addison Gourluck
+ */
+public final class TrackCursor {
+	
+	private static final int NONE = CompiledTrack.NONE;
+	
+	private final CompiledTrack track;
+	private final SwitchSetting switches;
+	
+	// The section the cursor is on, the slot it is heading towards, and its distance from that slot
+	private int section;
+	private int towards;
+	private int remaining;
+	
+	/*
+	 * invariant: section is a section of track && towards is a slot of one of its end-points &&
+	 * 0 <= remaining <= track.length(section)
+	 */
+	
+	/**
+	 * Creates a cursor at the given location, heading towards the given end-point of the location's
+	 * section.
+	 * 
+	 * @param track - The track to move along.
+	 * @param switches - The switch setting to obey when crossing junctions.
+	 * @param location - Where the cursor starts, which must be on the track.
+	 * @param heading - The end-point of the location's section that the cursor is heading towards.
+	 * @throws NullPointerException If any parameter is null.
+	 * @throws IllegalArgumentException If the location is not on the track, or heading is not an
+	 *         end-point of its section.
+	 */
+	public TrackCursor(CompiledTrack track, SwitchSetting switches, Location location,
+			JunctionBranch heading) throws NullPointerException, IllegalArgumentException {
+		if (track == null || switches == null) {
+			throw new NullPointerException("Parameters may not be null.");
+		}
+		this.track = track;
+		this.switches = switches;
+		moveTo(location, heading);
+	}
+	
+	/**
+	 * Moves the cursor to the given location, heading towards the given end-point of the location's
+	 * section.
+	 * 
+	 * @param location - The new location of the cursor, which must be on the track.
+	 * @param heading - The end-point of the location's section that the cursor is heading towards.
+	 * @throws NullPointerException If either parameter is null.
+	 * @throws IllegalArgumentException If the location is not on the track, or heading is not an
+	 *         end-point of its section.
+	 */
+	public void moveTo(Location location, JunctionBranch heading)
+			throws NullPointerException, IllegalArgumentException {
+		if (location == null || heading == null) {
+			throw new NullPointerException("Parameters may not be null.");
+		}
+		int id = track.sectionId(location.getSection());
+		if (id == NONE) {
+			throw new IllegalArgumentException("The location " + location + " is not on the track.");
+		} else if (!location.getSection().getEndPoints().contains(heading)) {
+			throw new IllegalArgumentException("The cursor must head towards an end-point of its"
+					+ " section.");
+		}
+		section = id;
+		towards = track.slot(heading);
+		remaining = heading.equals(location.getEndPoint()) ? location.getOffset()
+				: track.length(id) - location.getOffset();
+	}
+	
+	/**
+	 * Moves the cursor the given distance towards its heading, crossing junctions as it goes. The
+	 * cursor stops early if it reaches an end-point with no section beyond it, and stops at a
+	 * junction (rather than crossing it) if it reaches it exactly.
+	 * 
+	 * @param meters - The distance to move.
+	 * @return The distance actually moved, which is less than meters only if the cursor stopped at
+	 *         the end of the track.
+	 * @throws IllegalArgumentException If meters is negative.
+	 */
+	public int advance(int meters) throws IllegalArgumentException {
+		if (meters < 0) {
+			throw new IllegalArgumentException("A cursor cannot advance a negative distance.");
+		}
+		int left = meters;
+		while (left > remaining) {
+			left -= remaining;
+			remaining = 0;
+			if (!cross()) {
+				return meters - left;
+			}
+		}
+		remaining -= left;
+		return meters;
+	}
+	
+	/**
+	 * Moves the cursor from the junction at the end of its section onto the next section, following
+	 * the switch rules, and returns false (leaving the cursor where it is) if there is no next
+	 * section.
+	 */
+	private boolean cross() {
+		int junction = CompiledTrack.junctionOf(towards);
+		Branch exit = (CompiledTrack.branchOf(towards) == Branch.FACING)
+				? switches.getSetting(junction) : Branch.FACING;
+		int slot = CompiledTrack.slot(junction, exit);
+		int next = track.sectionAt(slot);
+		if (next == NONE) {
+			return false;
+		}
+		section = next;
+		towards = track.opposite(slot);
+		remaining = track.length(next);
+		return true;
+	}
+	
+	/**
+	 * Turns the cursor around, so that it heads towards the other end-point of its section.
+	 */
+	public void reverse() {
+		towards = track.opposite(towards);
+		remaining = track.length(section) - remaining;
+	}
+	
+	/**
+	 * Returns true iff the cursor is at either end of its section.
+	 * 
+	 * @return True iff the cursor is at a junction.
+	 */
+	public boolean atJunction() {
+		return remaining == 0 || remaining == track.length(section);
+	}
+	
+	/**
+	 * Returns the distance from the cursor to the end-point it is heading towards.
+	 * 
+	 * @return The distance to the end of the section, in meters.
+	 */
+	public int getRemaining() {
+		return remaining;
+	}
+	
+	/**
+	 * Returns the section that the cursor is on.
+	 * 
+	 * @return The section of the cursor.
+	 */
+	public Section getSection() {
+		return track.section(section);
+	}
+	
+	/**
+	 * Returns the end-point of the cursor's section that it is heading towards.
+	 * 
+	 * @return The heading of the cursor.
+	 */
+	public JunctionBranch getHeading() {
+		return track.endPoint(towards);
+	}
+	
+	/**
+	 * Returns the location of the cursor.
+	 * 
+	 * @return A new location, equivalent to the position of the cursor.
+	 */
+	public Location getLocation() {
+		Section current = track.section(section);
+		if (remaining == current.getLength()) {
+			return new Location(current, track.endPoint(track.opposite(towards)), 0);
+		}
+		return new Location(current, track.endPoint(towards), remaining);
+	}
+	
+	/**
+	 * Returns a string representation of the cursor.
+	 */
+	@Override
+	public String toString() {
+		return getLocation() + ", heading to " + getHeading();
+	}
+}
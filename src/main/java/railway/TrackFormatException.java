@@ -0,0 +1,29 @@
+package railway;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An exception that is thrown to indicate that a textual description of a track is malformed.
+ * 
+ * @author Addison Gourluck
+ */
+@SuppressWarnings("serial")
+public class TrackFormatException extends InvalidTrackException {
+	
+	private final List<Long> lineNumbers;
+	
+	public TrackFormatException(String s, List<Long> lineNumbers) {
+		super(s);
+		this.lineNumbers = Collections.unmodifiableList(lineNumbers);
+	}
+	
+	/**
+	 * Returns the (one-based) numbers of the malformed lines, in order.
+	 * 
+	 * @return The line numbers of the malformed lines.
+	 */
+	public List<Long> getLineNumbers() {
+		return lineNumbers;
+	}
+}
@@ -0,0 +1,20 @@
+package railway;
+
+/**
+ * A listener that is told about each change to the sections of a track. See
+ * {@link Track#addTrackListener(TrackListener)}.
+ * 
+ * @author Addison Gourluck
+ */
+public interface TrackListener {
+	
+	/**
+	 * Called after each successful modification of the track, on the thread that made it. Each
+	 * call to addSection, addSections or removeSection that changes the track is reported as a
+	 * single change. Listeners should return quickly; a slow consumer should hand the change on to
+	 * a {@link TrackChangeQueue}.
+	 * 
+	 * @param change - The sections that were added to and removed from the track.
+	 */
+	void trackChanged(TrackChange change);
+}
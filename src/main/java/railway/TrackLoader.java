@@ -0,0 +1,289 @@
+package railway;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * <p>
+ * Reads sections from the textual representation of a track, as written by Track.toString(): one
+ * section per line, each line being the string representation of a section (e.g.
+ * "9 (j1, FACING) (j2, NORMAL)"). Blank lines are ignored.
+ * </p>
+ * 
+ * <p>
+ * Files are memory-mapped in chunks that end on line boundaries, and the chunks are parsed in
+ * parallel, so that the file is never read into one String. Every malformed line is reported,
+ * together with its line number, before any sections are returned.
+ * </p>
+ * 
+ * @author Addison Gourluck
+ */
+final class TrackLoader {
+	
+	// The approximate size of the chunks that a file is parsed in, by default
+	static final int CHUNK_SIZE = 32 << 20;
+	
+	// The most malformed lines that are described in an exception message
+	private static final int MAX_REPORTED = 10;
+	
+	private TrackLoader() {
+	
+	}
+	
+	/**
+	 * The sections and malformed lines of one chunk of the input.
+	 */
+	private static final class Chunk {
+		
+		final List<Section> sections = new ArrayList<>();
+		final List<Long> errorLines = new ArrayList<>(); // relative to the start of the chunk
+		final List<String> errors = new ArrayList<>();
+		long lines = 0;
+		
+		void parse(String line) {
+			lines++;
+			if (line.isEmpty()) {
+				return;
+			}
+			try {
+				sections.add(parseSection(line));
+			} catch (IllegalArgumentException e) {
+				errorLines.add(lines);
+				errors.add(e.getMessage());
+			}
+		}
+	}
+	
+	/**
+	 * Reads all of the sections from the given reader.
+	 * 
+	 * @param reader - The reader to read from.
+	 * @return The sections read, in order.
+	 * @throws IOException If the reader throws an IOException.
+	 * @throws TrackFormatException If any line is malformed.
+	 */
+	static List<Section> read(Reader reader) throws IOException, TrackFormatException {
+		BufferedReader lines = new BufferedReader(reader);
+		Chunk chunk = new Chunk();
+		for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+			chunk.parse(line);
+		}
+		return merge(new Chunk[] { chunk });
+	}
+	
+	/**
+	 * Reads all of the sections from the given UTF-8 encoded file, parsing it in chunks of about
+	 * the given size.
+	 * 
+	 * @param path - The file to read from.
+	 * @param chunkSize - The approximate size of each chunk, in bytes.
+	 * @return The sections read, in order.
+	 * @throws IOException If the file can't be read.
+	 * @throws TrackFormatException If any line is malformed.
+	 * @throws IllegalArgumentException If chunkSize is not positive.
+	 */
+	static List<Section> read(Path path, int chunkSize)
+			throws IOException, TrackFormatException, IllegalArgumentException {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("The chunk size must be positive.");
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long[] starts = chunkStarts(channel, chunkSize);
+			try {
+				Chunk[] chunks = IntStream.range(0, starts.length - 1).parallel()
+						.mapToObj(i -> parseChunk(channel, starts[i], starts[i + 1]))
+						.toArray(Chunk[]::new);
+				return merge(chunks);
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		}
+	}
+	
+	/**
+	 * Splits the file into chunks of about chunkSize bytes, each of which ends just after a line
+	 * separator (or at the end of the file). The returned array holds the start of each chunk,
+	 * followed by the size of the file.
+	 */
+	private static long[] chunkStarts(FileChannel channel, int chunkSize) throws IOException {
+		long size = channel.size();
+		List<Long> starts = new ArrayList<>();
+		long start = 0;
+		while (start < size) {
+			starts.add(start);
+			long end = start + chunkSize;
+			if (end >= size) {
+				break;
+			}
+			// Move the end of the chunk forward to the start of the next line
+			while (end < size) {
+				MappedByteBuffer window = channel.map(MapMode.READ_ONLY, end,
+						Math.min(1 << 16, size - end));
+				int i = 0;
+				while (i < window.limit() && window.get(i) != '\n') {
+					i++;
+				}
+				end += i;
+				if (i < window.limit()) {
+					end++; // past the newline
+					break;
+				}
+			}
+			start = end;
+		}
+		long[] result = new long[starts.size() + 1];
+		for (int i = 0; i < starts.size(); i++) {
+			result[i] = starts.get(i);
+		}
+		result[starts.size()] = size;
+		return result;
+	}
+	
+	/**
+	 * Parses the lines of the file between the given positions.
+	 */
+	private static Chunk parseChunk(FileChannel channel, long start, long end) {
+		Chunk chunk = new Chunk();
+		MappedByteBuffer buffer;
+		try {
+			buffer = channel.map(MapMode.READ_ONLY, start, end - start);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		byte[] line = new byte[256];
+		int length = 0;
+		while (buffer.hasRemaining()) {
+			byte b = buffer.get();
+			if (b == '\n') {
+				chunk.parse(decode(line, length));
+				length = 0;
+			} else {
+				if (length == line.length) {
+					line = Arrays.copyOf(line, length * 2);
+				}
+				line[length++] = b;
+			}
+		}
+		if (length > 0) {
+			chunk.parse(decode(line, length));
+		}
+		return chunk;
+	}
+	
+	/**
+	 * Decodes a line of UTF-8, dropping the carriage return of a Windows line separator.
+	 */
+	private static String decode(byte[] line, int length) {
+		if (length > 0 && line[length - 1] == '\r') {
+			length--;
+		}
+		return new String(line, 0, length, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Combines the sections of the given chunks, or reports the malformed lines in all of them.
+	 */
+	private static List<Section> merge(Chunk[] chunks) throws TrackFormatException {
+		List<Long> errorLines = new ArrayList<>();
+		StringBuilder message = new StringBuilder();
+		int total = 0;
+		long firstLine = 1;
+		for (Chunk chunk : chunks) {
+			for (int i = 0; i < chunk.errors.size(); i++) {
+				long lineNumber = firstLine + chunk.errorLines.get(i) - 1;
+				errorLines.add(lineNumber);
+				if (errorLines.size() <= MAX_REPORTED) {
+					message.append(String.format("%nLine %d: %s", lineNumber, chunk.errors.get(i)));
+				}
+			}
+			firstLine += chunk.lines;
+			total += chunk.sections.size();
+		}
+		if (!errorLines.isEmpty()) {
+			String summary = errorLines.size() + " malformed line(s)";
+			if (errorLines.size() > MAX_REPORTED) {
+				message.append(String.format("%n..."));
+			}
+			throw new TrackFormatException(summary + message, errorLines);
+		}
+		
+		List<Section> sections = new ArrayList<>(total);
+		for (Chunk chunk : chunks) {
+			sections.addAll(chunk.sections);
+		}
+		return sections;
+	}
+	
+	/**
+	 * <p>
+	 * Parses the string representation of a section: its length, followed by a space, followed by
+	 * each of its end-points, separated by a space. An end-point is written "(JUNCTION, BRANCH)",
+	 * and its junction is interned.
+	 * </p>
+	 * 
+	 * <p>
+	 * Junction identifiers may themselves contain spaces, commas and brackets, so the end-points
+	 * are split at the first ") (" that leaves a valid end-point on each side.
+	 * </p>
+	 * 
+	 * @param line - The string representation of a section.
+	 * @return The section represented.
+	 * @throws IllegalArgumentException If the line is not a valid section.
+	 */
+	static Section parseSection(String line) throws IllegalArgumentException {
+		int space = line.indexOf(' ');
+		if (space < 0) {
+			throw new IllegalArgumentException("Expected a length and two end-points.");
+		}
+		int length;
+		try {
+			length = Integer.parseInt(line.substring(0, space));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid length \"" + line.substring(0, space)
+					+ "\".");
+		}
+		
+		int split = line.indexOf(") (", space);
+		for (; split >= 0; split = line.indexOf(") (", split + 1)) {
+			JunctionBranch first = parseEndPoint(line, space + 1, split + 1);
+			JunctionBranch second = parseEndPoint(line, split + 2, line.length());
+			if (first != null && second != null) {
+				return new Section(length, first, second);
+			}
+		}
+		throw new IllegalArgumentException("Expected two end-points of the form (JUNCTION, BRANCH).");
+	}
+	
+	/**
+	 * Parses the end-point between the given positions of the line, or returns null if it isn't a
+	 * valid end-point.
+	 */
+	private static JunctionBranch parseEndPoint(String line, int start, int end) {
+		if (end - start < 2 || line.charAt(start) != '(' || line.charAt(end - 1) != ')') {
+			return null;
+		}
+		int comma = line.lastIndexOf(", ", end - 1);
+		if (comma <= start) {
+			return null;
+		}
+		Branch branch;
+		try {
+			branch = Branch.valueOf(line.substring(comma + 2, end - 1));
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+		return JunctionBranch.of(Junction.of(line.substring(start + 1, comma)), branch);
+	}
+}
@@ -0,0 +1,266 @@
+package railway;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * A thread-safe index of objects (such as trains, signals and balises) placed at locations on a
+ * track, which answers range and nearest-object queries along a section without scanning all of
+ * the objects.
+ * </p>
+ * 
+ * <p>
+ * The objects on each section are held in a skip list, sorted by their distance from the lesser
+ * end-point of the section (see {@link Location}), so equivalent descriptions of a location are
+ * indexed identically, and placing, moving, removing and finding the objects near a location each
+ * take O(log n) time. A section's skip list is dropped when its last object leaves it.
+ * </p>
+ * 
+ * <p>
+ * An object at a junction is only indexed on the section of the location it was placed at, since
+ * the index doesn't know which other sections meet there. Queries along the other sections at the
+ * junction, including nextAlong as it crosses the junction onto them, don't see it.
+ * </p>
+ * 
+ * @param <T> - The type of the objects in the index.
+ * @author Addison Gourluck
+ */
+public final class TrackObjectIndex<T> {
+	
+	// The objects on each section, keyed by (offset from the lesser end-point << 32 | placement)
+	private final Map<Section, NavigableMap<Long, T>> sections = new ConcurrentHashMap<>();
+	
+	// Where each object is, so that it can be moved or removed
+	private final Map<T, Placement> placements = new ConcurrentHashMap<>();
+	
+	// Numbers each placement, so that objects at the same offset have different keys
+	private final AtomicInteger placementCount = new AtomicInteger();
+	
+	/**
+	 * The location of an object, and its key in the skip list of its section.
+	 */
+	private static final class Placement {
+		
+		final Location location;
+		final long key;
+		
+		Placement(Location location, long key) {
+			this.location = location;
+			this.key = key;
+		}
+	}
+	
+	/**
+	 * Places the given object at the given location, moving it if it is already in the index.
+	 * 
+	 * @param object - The object to place.
+	 * @param location - Where to place the object.
+	 * @throws NullPointerException If either parameter is null.
+	 */
+	public void put(T object, Location location) throws NullPointerException {
+		if (object == null || location == null) {
+			throw new NullPointerException("Parameters may not be null.");
+		}
+		placements.compute(object, (key, old) -> {
+			if (old != null) {
+				unindex(old);
+			}
+			long entry = ((long) location.offsetFromLesserEndPoint() << 32)
+					| (placementCount.getAndIncrement() & 0xFFFFFFFFL);
+			sections.compute(location.getSection(), (section, objects) -> {
+				NavigableMap<Long, T> added = (objects == null) ? new ConcurrentSkipListMap<>()
+						: objects;
+				added.put(entry, object);
+				return added;
+			});
+			return new Placement(location, entry);
+		});
+	}
+	
+	/**
+	 * Removes the given object from the index, if it is there.
+	 * 
+	 * @param object - The object to remove.
+	 * @return True iff the object was in the index.
+	 */
+	public boolean remove(T object) {
+		boolean[] removed = new boolean[1];
+		placements.computeIfPresent(object, (key, old) -> {
+			unindex(old);
+			removed[0] = true;
+			return null;
+		});
+		return removed[0];
+	}
+	
+	/**
+	 * Removes the entry of a placement from the skip list of its section, and drops the skip list
+	 * if that leaves it empty. Both are done under the lock of the section's entry in sections, so
+	 * that an object placed on the section at the same time is never put in a dropped skip list.
+	 */
+	private void unindex(Placement placement) {
+		sections.computeIfPresent(placement.location.getSection(), (section, objects) -> {
+			objects.remove(placement.key);
+			return objects.isEmpty() ? null : objects;
+		});
+	}
+	
+	/**
+	 * Returns the location that the given object was placed at, or null if it isn't in the index.
+	 * 
+	 * @param object - An object.
+	 * @return The location of the object, or null.
+	 */
+	public Location getLocation(T object) {
+		Placement placement = (object == null) ? null : placements.get(object);
+		return (placement == null) ? null : placement.location;
+	}
+	
+	/**
+	 * Returns the number of objects in the index.
+	 * 
+	 * @return The number of objects.
+	 */
+	public int size() {
+		return placements.size();
+	}
+	
+	/**
+	 * Returns the objects on the given section whose distance from the given end-point of the
+	 * section is between from and to (inclusive), in order of their distance from the end-point.
+	 * 
+	 * @param section - The section to look along.
+	 * @param endPoint - The end-point of the section that the distances are measured from.
+	 * @param from - The least distance from the end-point.
+	 * @param to - The greatest distance from the end-point.
+	 * @return The objects in that part of the section, nearest to the end-point first.
+	 * @throws IllegalArgumentException If endPoint is not an end-point of the section.
+	 */
+	public List<T> between(Section section, JunctionBranch endPoint, int from, int to)
+			throws IllegalArgumentException {
+		boolean fromLesser = isLesserEndPoint(section, endPoint);
+		NavigableMap<Long, T> objects = sections.get(section);
+		List<T> result = new ArrayList<>();
+		if (objects == null || from > to) {
+			return result;
+		}
+		Collection<T> found;
+		if (fromLesser) {
+			found = objects.subMap(low(from), true, high(to), true).values();
+		} else {
+			int length = section.getLength();
+			found = objects.subMap(low(length - to), true, high(length - from), true)
+					.descendingMap().values();
+		}
+		result.addAll(found);
+		return result;
+	}
+	
+	/**
+	 * Returns the nearest object that is further along the section of the given location than the
+	 * location itself, in the direction of the given end-point of the section, or null if there
+	 * isn't one. Only the location's own section is searched; see
+	 * {@link #nextAlong(Location, JunctionBranch, CompiledTrack, SwitchSetting)} to look beyond it.
+	 * 
+	 * @param location - The location to look ahead from.
+	 * @param towards - The end-point of the location's section to look towards.
+	 * @return The nearest object ahead of the location, or null.
+	 * @throws IllegalArgumentException If towards is not an end-point of the location's section.
+	 */
+	public T nextAlong(Location location, JunctionBranch towards) throws IllegalArgumentException {
+		Section section = location.getSection();
+		boolean upwards = !isLesserEndPoint(section, towards);
+		NavigableMap<Long, T> objects = sections.get(section);
+		if (objects == null) {
+			return null;
+		}
+		int offset = location.offsetFromLesserEndPoint();
+		Map.Entry<Long, T> next = upwards ? objects.higherEntry(high(offset))
+				: objects.lowerEntry(low(offset));
+		return (next == null) ? null : next.getValue();
+	}
+	
+	/**
+	 * Returns the nearest object ahead of the given location, in the direction of the given
+	 * end-point of its section, or null if there isn't one. If there is no object further along
+	 * the location's section, the search continues through the junctions reached, following the
+	 * switch rules (see {@link TrackCursor}), until an object is found, the track ends, or the way
+	 * ahead starts to repeat itself.
+	 * 
+	 * @param location - The location to look ahead from, which must be on the track.
+	 * @param towards - The end-point of the location's section to look towards.
+	 * @param track - The track to follow.
+	 * @param switches - The switch setting to obey when crossing junctions.
+	 * @return The nearest object ahead of the location, or null.
+	 * @throws NullPointerException If any parameter is null.
+	 * @throws IllegalArgumentException If the location is not on the track, or towards is not an
+	 *         end-point of its section.
+	 */
+	public T nextAlong(Location location, JunctionBranch towards, CompiledTrack track,
+			SwitchSetting switches) throws NullPointerException, IllegalArgumentException {
+		if (track == null || switches == null) {
+			throw new NullPointerException("Parameters may not be null.");
+		}
+		T next = nextAlong(location, towards);
+		if (next != null) {
+			return next;
+		} else if (track.sectionId(location.getSection()) == CompiledTrack.NONE) {
+			throw new IllegalArgumentException("The location " + location
+					+ " is not on the track.");
+		}
+		
+		// The way ahead is fixed by the switches, so it repeats once it has arrived on every slot
+		int arrival = track.slot(towards);
+		for (int crossed = 0; crossed < track.slotCount(); crossed++) {
+			int junction = CompiledTrack.junctionOf(arrival);
+			Branch exit = (CompiledTrack.branchOf(arrival) == Branch.FACING)
+					? switches.getSetting(junction) : Branch.FACING;
+			int slot = CompiledTrack.slot(junction, exit);
+			int id = track.sectionAt(slot);
+			if (id == CompiledTrack.NONE) {
+				return null;
+			}
+			Section section = track.section(id);
+			NavigableMap<Long, T> objects = sections.get(section);
+			Map.Entry<Long, T> nearest = null;
+			if (objects != null) {
+				nearest = section.getLesserEndPoint().equals(track.endPoint(slot))
+						? objects.firstEntry() : objects.lastEntry();
+			}
+			if (nearest != null) {
+				return nearest.getValue();
+			}
+			arrival = track.opposite(slot);
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns true if the end-point is the lesser end-point of the section.
+	 */
+	private static boolean isLesserEndPoint(Section section, JunctionBranch endPoint) {
+		if (!section.getEndPoints().contains(endPoint)) {
+			throw new IllegalArgumentException("The end-point " + endPoint
+					+ " is not an end-point of the section " + section + ".");
+		}
+		return section.getLesserEndPoint().equals(endPoint);
+	}
+	
+	/**
+	 * Returns the least and greatest skip list keys for the given offset.
+	 */
+	private static long low(int offset) {
+		return (long) offset << 32;
+	}
+	
+	private static long high(int offset) {
+		return ((long) offset << 32) | 0xFFFFFFFFL;
+	}
+}
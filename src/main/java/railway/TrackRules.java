@@ -0,0 +1,109 @@
+package railway;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * <p>
+ * The rules for which sections can be added to a track, shared by the implementations of a track:
+ * a section may not be null, and a junction can only be connected to one section on a given
+ * branch.
+ * </p>
+ * 
+ * <p>
+ * Each implementation describes its layout by a function that returns the section connected to an
+ * end-point (or null if there isn't one), and, for batches, a predicate that says whether it
+ * already contains a section.
+ * </p>
+ * 
+ * @author Addison Gourluck
+ */
+final class TrackRules {
+	
+	private TrackRules() {
+	
+	}
+	
+	/**
+	 * Checks that the given section is not null.
+	 * 
+	 * @param section - The section to be added to a track.
+	 * @throws NullPointerException If section is null.
+	 */
+	static void checkNotNull(Section section) throws NullPointerException {
+		if (section == null) {
+			throw new NullPointerException("Cannot add a null section to the track.");
+		}
+	}
+	
+	/**
+	 * Checks that neither end-point of the given section is connected to a section of the track.
+	 * 
+	 * @param section - The section to be added to the track, which isn't already in it.
+	 * @param occupants - Returns the section of the track connected to an end-point, or null.
+	 * @throws InvalidTrackException If either end-point is already connected to a section.
+	 */
+	static void checkEndPoints(Section section, Function<JunctionBranch, Section> occupants)
+			throws InvalidTrackException {
+		for (JunctionBranch endPoint : section.getEndPoints()) {
+			Section occupant = occupants.apply(endPoint);
+			if (occupant != null) {
+				throw conflict(endPoint, occupant);
+			}
+		}
+	}
+	
+	/**
+	 * Validates a batch of sections to be added to a track, and returns the ones that are new to
+	 * it, in the order they first appear in the batch. Sections that are already in the track, or
+	 * that appear more than once in the batch, are skipped. Otherwise, no two sections (either in
+	 * the batch, or in the batch and the track) may be connected to the same end-point.
+	 * 
+	 * @param batch - The sections to be added to the track.
+	 * @param contains - Returns true if the track already contains a section.
+	 * @param occupants - Returns the section of the track connected to an end-point, or null.
+	 * @return The sections to add to the track.
+	 * @throws NullPointerException If batch is null, or contains a null section.
+	 * @throws InvalidTrackException If adding the sections would result in a junction being
+	 *         connected to more than one section on the same branch.
+	 */
+	static Set<Section> checkBatch(Collection<Section> batch, Predicate<Section> contains,
+			Function<JunctionBranch, Section> occupants)
+			throws NullPointerException, InvalidTrackException {
+		// The end-points claimed by the batch so far, and the new sections claiming them
+		Map<JunctionBranch, Section> claimed = new HashMap<>();
+		Set<Section> additions = new LinkedHashSet<>();
+		
+		for (Section section : batch) {
+			checkNotNull(section);
+			if (contains.test(section) || additions.contains(section)) {
+				// Already in the track, or a repeat of a section earlier in the batch
+				continue;
+			}
+			for (JunctionBranch endPoint : section.getEndPoints()) {
+				Section occupant = occupants.apply(endPoint);
+				if (occupant == null) {
+					occupant = claimed.get(endPoint);
+				}
+				if (occupant != null) {
+					throw conflict(endPoint, occupant);
+				}
+			}
+			for (JunctionBranch endPoint : section.getEndPoints()) {
+				claimed.put(endPoint, section);
+			}
+			additions.add(section);
+		}
+		return additions;
+	}
+	
+	private static InvalidTrackException conflict(JunctionBranch endPoint, Section occupant) {
+		return new InvalidTrackException("The end-point " + endPoint
+				+ " is already connected to the section " + occupant + ".");
+	}
+}
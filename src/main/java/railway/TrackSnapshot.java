@@ -0,0 +1,271 @@
+package railway;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * A read-only view of a track that has been saved in the binary snapshot format, which is
+ * memory-mapped rather than parsed, so that a large track can be opened almost instantly.
+ * </p>
+ * 
+ * <p>
+ * The format is a sequence of big-endian ints: a header (MAGIC, VERSION, the number of junctions
+ * and the number of sections); then, for each junction, the offset of its identifier in the string
+ * table, followed by the length of the string table; then, for each section, the slots of its two
+ * end-points and its length. The string table, holding the UTF-8 encoded identifier of each
+ * junction, comes last. Junctions are numbered densely from zero, and the slot of an end-point is
+ * junction * 3 + branch.ordinal(), as in {@link CompiledTrack}.
+ * </p>
+ * 
+ * <p>
+ * The accessors read directly from the mapped file, and Junction and Section objects are only
+ * created when asked for. Use {@link Track#writeSnapshot(Path)} to save a track, and
+ * {@link #open(Path)} to open one.
+ * </p>
+ * 
+ * @author Addison Gourluck
+ */
+public final class TrackSnapshot {
+	
+	/** The first int of every snapshot file ("TRAK"). */
+	public static final int MAGIC = 0x5452414B;
+	
+	/** The version of the format written by this class. */
+	public static final int VERSION = 1;
+	
+	private static final int HEADER_INTS = 4;
+	private static final int SECTION_INTS = 3;
+	
+	private final int junctionCount;
+	private final int sectionCount;
+	
+	// The offsets of the junction identifiers, the sections, and the identifiers themselves
+	private final IntBuffer offsets;
+	private final IntBuffer sections;
+	private final ByteBuffer strings;
+	
+	private TrackSnapshot(int junctionCount, int sectionCount, IntBuffer offsets,
+			IntBuffer sections, ByteBuffer strings) {
+		this.junctionCount = junctionCount;
+		this.sectionCount = sectionCount;
+		this.offsets = offsets;
+		this.sections = sections;
+		this.strings = strings;
+	}
+	
+	/**
+	 * Writes the given compiled track to a file in the snapshot format, replacing the file if it
+	 * exists.
+	 * 
+	 * @param track - The track to write.
+	 * @param path - The file to write to.
+	 * @throws IOException If the file can't be written.
+	 */
+	static void write(CompiledTrack track, Path path) throws IOException {
+		int junctions = track.junctionCount();
+		byte[][] ids = new byte[junctions][];
+		for (int i = 0; i < junctions; i++) {
+			ids[i] = track.junction(i).getJunctionId().getBytes(StandardCharsets.UTF_8);
+		}
+		
+		try (OutputStream file = Files.newOutputStream(path);
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(junctions);
+			out.writeInt(track.sectionCount());
+			
+			int offset = 0;
+			for (byte[] id : ids) {
+				out.writeInt(offset);
+				offset += id.length;
+			}
+			out.writeInt(offset);
+			
+			for (int i = 0; i < track.sectionCount(); i++) {
+				Section section = track.section(i);
+				out.writeInt(track.slot(section.getFirstEndPoint()));
+				out.writeInt(track.slot(section.getSecondEndPoint()));
+				out.writeInt(track.length(i));
+			}
+			
+			for (byte[] id : ids) {
+				out.write(id);
+			}
+		}
+	}
+	
+	/**
+	 * Opens the snapshot in the given file, by memory-mapping it. Only the header is checked; the
+	 * rest of the file is read as it is accessed.
+	 * 
+	 * @param path - The snapshot file.
+	 * @return A view of the snapshot.
+	 * @throws IOException If the file can't be read, or is not a snapshot of a supported version.
+	 */
+	public static TrackSnapshot open(Path path) throws IOException {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("The snapshot " + path + " is too large to map.");
+			}
+			buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+		
+		long size = buffer.capacity();
+		if (size < HEADER_INTS * 4 || buffer.getInt(0) != MAGIC) {
+			throw new IOException(path + " is not a track snapshot.");
+		} else if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported track snapshot version " + buffer.getInt(4) + ".");
+		}
+		int junctionCount = buffer.getInt(8);
+		int sectionCount = buffer.getInt(12);
+		long sectionStart = (HEADER_INTS + (long) junctionCount + 1) * 4;
+		long stringStart = sectionStart + (long) sectionCount * SECTION_INTS * 4;
+		if (junctionCount < 0 || sectionCount < 0 || stringStart > size
+				|| stringStart + buffer.getInt((int) sectionStart - 4) != size) {
+			throw new IOException("The track snapshot " + path + " is truncated or corrupt.");
+		}
+		
+		return new TrackSnapshot(junctionCount, sectionCount,
+				slice(buffer, HEADER_INTS * 4, (int) sectionStart).asIntBuffer(),
+				slice(buffer, (int) sectionStart, (int) stringStart).asIntBuffer(),
+				slice(buffer, (int) stringStart, (int) size));
+	}
+	
+	private static ByteBuffer slice(ByteBuffer buffer, int start, int end) {
+		ByteBuffer copy = buffer.duplicate();
+		copy.position(start);
+		copy.limit(end);
+		return copy.slice();
+	}
+	
+	/**
+	 * Returns the number of junctions in the snapshot.
+	 * 
+	 * @return The number of junctions.
+	 */
+	public int junctionCount() {
+		return junctionCount;
+	}
+	
+	/**
+	 * Returns the number of sections in the snapshot.
+	 * 
+	 * @return The number of sections.
+	 */
+	public int sectionCount() {
+		return sectionCount;
+	}
+	
+	/**
+	 * Returns the identifier of the junction with the given number.
+	 * 
+	 * @param junction - The number of a junction, between zero and junctionCount() - 1.
+	 * @return The identifier of that junction.
+	 */
+	public String junctionId(int junction) {
+		int start = offsets.get(junction);
+		byte[] bytes = new byte[offsets.get(junction + 1) - start];
+		ByteBuffer id = strings.duplicate();
+		id.position(start);
+		id.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Returns the (interned) junction with the given number.
+	 * 
+	 * @param junction - The number of a junction, between zero and junctionCount() - 1.
+	 * @return That junction.
+	 */
+	public Junction junction(int junction) {
+		return Junction.of(junctionId(junction));
+	}
+	
+	/**
+	 * Returns the slot of the first end-point of the section with the given number.
+	 * 
+	 * @param section - The number of a section, between zero and sectionCount() - 1.
+	 * @return junction * 3 + branch.ordinal() for the section's first end-point.
+	 */
+	public int firstEndPoint(int section) {
+		return sections.get(section * SECTION_INTS);
+	}
+	
+	/**
+	 * Returns the slot of the second end-point of the section with the given number.
+	 * 
+	 * @param section - The number of a section, between zero and sectionCount() - 1.
+	 * @return junction * 3 + branch.ordinal() for the section's second end-point.
+	 */
+	public int secondEndPoint(int section) {
+		return sections.get(section * SECTION_INTS + 1);
+	}
+	
+	/**
+	 * Returns the length of the section with the given number.
+	 * 
+	 * @param section - The number of a section, between zero and sectionCount() - 1.
+	 * @return The length of that section, in meters.
+	 */
+	public int length(int section) {
+		return sections.get(section * SECTION_INTS + 2);
+	}
+	
+	/**
+	 * Returns the section with the given number, whose junctions are interned.
+	 * 
+	 * @param section - The number of a section, between zero and sectionCount() - 1.
+	 * @return That section.
+	 */
+	public Section section(int section) {
+		return new Section(length(section), endPoint(firstEndPoint(section)),
+				endPoint(secondEndPoint(section)));
+	}
+	
+	private JunctionBranch endPoint(int slot) {
+		return JunctionBranch.of(junction(CompiledTrack.junctionOf(slot)),
+				CompiledTrack.branchOf(slot));
+	}
+	
+	/**
+	 * Builds a track holding all of the sections in the snapshot.
+	 * 
+	 * @return A new track with the layout saved in the snapshot.
+	 * @throws InvalidTrackException If the snapshot does not hold a valid track.
+	 */
+	public Track toTrack() throws InvalidTrackException {
+		Junction[] junctions = new Junction[junctionCount];
+		for (int i = 0; i < junctionCount; i++) {
+			junctions[i] = junction(i);
+		}
+		List<Section> all = new ArrayList<>(sectionCount);
+		for (int i = 0; i < sectionCount; i++) {
+			int first = firstEndPoint(i);
+			int second = secondEndPoint(i);
+			all.add(new Section(length(i),
+					JunctionBranch.of(junctions[CompiledTrack.junctionOf(first)],
+							CompiledTrack.branchOf(first)),
+					JunctionBranch.of(junctions[CompiledTrack.junctionOf(second)],
+							CompiledTrack.branchOf(second))));
+		}
+		Track track = new Track();
+		track.addSections(all);
+		return track;
+	}
+}
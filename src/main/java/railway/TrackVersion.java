@@ -0,0 +1,153 @@
+package railway;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>
+ * An immutable view of one version of a track, as returned by {@link Track#snapshot()}.
+ * </p>
+ * 
+ * <p>
+ * A version never changes, however the track is modified afterwards, so it can be read (from any
+ * number of threads) for as long as it is needed, without copying the track and without blocking
+ * the track's writers. Versions share almost all of their structure with each other and with the
+ * track, and are reclaimed by the garbage collector once they are no longer referenced.
+ * </p>
+ * 
+ * @author Addison Gourluck
+ */
+public final class TrackVersion implements Iterable<Section> {
+	
+	private static final Branch[] BRANCHES = Branch.values();
+	
+	// Every end-point of every section in this version, mapped to the section that occupies it
+	private final PersistentHashMap<JunctionBranch, Section> endPoints;
+	private final long version;
+	
+	TrackVersion(PersistentHashMap<JunctionBranch, Section> endPoints, long version) {
+		this.endPoints = endPoints;
+		this.version = version;
+	}
+	
+	/**
+	 * Returns the version number of the track when this view was taken. The number increases each
+	 * time the track is modified, so two views of the same track with the same version number
+	 * describe the same layout.
+	 * 
+	 * @return The version number.
+	 */
+	public long getVersion() {
+		return version;
+	}
+	
+	/**
+	 * Returns the number of sections in this version of the track.
+	 * 
+	 * @return The number of sections.
+	 */
+	public int size() {
+		return endPoints.size() / 2;
+	}
+	
+	/**
+	 * Returns true if this version of the track contains the given section and false otherwise.
+	 * 
+	 * @param section - The section whose presence in the track is to be checked.
+	 * @return True iff the track contains a section that is equivalent to the given parameter.
+	 */
+	public boolean contains(Section section) {
+		return section != null && section.equals(endPoints.get(section.getFirstEndPoint()));
+	}
+	
+	/**
+	 * If this version of the track contains a section that is connected to the given junction on
+	 * the given branch, then it returns that section, otherwise it returns null.
+	 * 
+	 * @param junction - The junction for which the section will be returned.
+	 * @param branch - The branch of the junction for which the section will be returned.
+	 * @return the section of track that is connected to the junction on the given branch, if there
+	 *         is one, otherwise null
+	 */
+	public Section getTrackSection(Junction junction, Branch branch) {
+		if (junction == null || branch == null) {
+			return null;
+		}
+		return endPoints.get(junction.isInterned() ? JunctionBranch.of(junction, branch)
+				: new JunctionBranch(junction, branch));
+	}
+	
+	/**
+	 * Returns the number of branches of the given junction that are connected to sections in this
+	 * version of the track.
+	 * 
+	 * @param junction - The junction whose branches will be counted.
+	 * @return The number of sections connected to the junction, counting a loop section twice.
+	 */
+	public int getDegree(Junction junction) {
+		int degree = 0;
+		for (Branch branch : BRANCHES) {
+			if (getTrackSection(junction, branch) != null) {
+				degree++;
+			}
+		}
+		return degree;
+	}
+	
+	/**
+	 * Returns an iterator over the sections in this version of the track, in no particular order.
+	 * The iterator does not support removal.
+	 */
+	@Override
+	public Iterator<Section> iterator() {
+		Iterator<Map.Entry<JunctionBranch, Section>> entries = endPoints.iterator();
+		return new Iterator<Section>() {
+			
+			private Section next = advance();
+			
+			// Each section is mapped to by both of its end-points, so only return it for the first
+			private Section advance() {
+				while (entries.hasNext()) {
+					Map.Entry<JunctionBranch, Section> entry = entries.next();
+					if (entry.getKey().equals(entry.getValue().getFirstEndPoint())) {
+						return entry.getValue();
+					}
+				}
+				return null;
+			}
+			
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+			
+			@Override
+			public Section next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				Section result = next;
+				next = advance();
+				return result;
+			}
+		};
+	}
+	
+	/**
+	 * Returns the string representation of this version of the track, in the same form as
+	 * {@link Track#toString()}.
+	 */
+	@Override
+	public String toString() {
+		String separator = System.getProperty("line.separator");
+		StringBuilder stringy = new StringBuilder();
+		for (Section section : this) {
+			if (stringy.length() > 0) {
+				stringy.append(separator);
+			}
+			stringy.append(section);
+		}
+		return stringy.toString();
+	}
+}
@@ -0,0 +1,106 @@
+package railway.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import railway.Branch;
+import railway.CompiledTrack;
+import railway.Junction;
+import railway.JunctionBranch;
+import railway.Location;
+import railway.Section;
+import railway.Track;
+
+/**
+ * Basic tests for the {@link CompiledTrack} implementation class.
+ * 
+ * @author Addison Gourluck
+ */
+public class CompiledTrackTest {
+	
+	private static final Junction A = new Junction("A");
+	private static final Junction B = new Junction("B");
+	private static final Junction C = new Junction("C");
+	
+	private static final Section AB = new Section(9, new JunctionBranch(A, Branch.FACING),
+			new JunctionBranch(B, Branch.NORMAL));
+	private static final Section BC = new Section(20, new JunctionBranch(B, Branch.FACING),
+			new JunctionBranch(C, Branch.REVERSE));
+	
+	@Test
+	public void compiledAdjacencyTest() {
+		Track track = new Track();
+		track.addSection(AB);
+		track.addSection(BC);
+		CompiledTrack compiled = track.compile();
+		
+		assertEquals(3, compiled.junctionCount());
+		assertEquals(2, compiled.sectionCount());
+		assertEquals(9, compiled.slotCount());
+		
+		int a = compiled.junctionId(A);
+		int b = compiled.junctionId(B);
+		int c = compiled.junctionId(C);
+		assertEquals(A, compiled.junction(a));
+		assertEquals(CompiledTrack.NONE, compiled.junctionId(new Junction("D")));
+		
+		// Walk from A along its FACING branch, through B, to C
+		int slot = compiled.opposite(CompiledTrack.slot(a, Branch.FACING));
+		assertEquals(CompiledTrack.slot(b, Branch.NORMAL), slot);
+		assertEquals(AB, compiled.section(compiled.sectionAt(slot)));
+		assertEquals(9, compiled.length(compiled.sectionAt(slot)));
+		
+		slot = compiled.opposite(CompiledTrack.slot(b, Branch.FACING));
+		assertEquals(c, CompiledTrack.junctionOf(slot));
+		assertEquals(Branch.REVERSE, CompiledTrack.branchOf(slot));
+		assertEquals(BC, compiled.section(compiled.sectionAt(slot)));
+		
+		// A has nothing on its NORMAL branch
+		assertEquals(CompiledTrack.NONE, compiled.sectionAt(CompiledTrack.slot(a, Branch.NORMAL)));
+		assertEquals(CompiledTrack.NONE, compiled.opposite(CompiledTrack.slot(a, Branch.NORMAL)));
+	}
+	
+	@Test
+	public void compiledCacheTest() {
+		Track track = new Track();
+		track.addSection(AB);
+		CompiledTrack compiled = track.compile();
+		assertSame("An unchanged track should not be recompiled.", compiled, track.compile());
+		
+		track.addSection(BC);
+		assertNotSame(compiled, track.compile());
+		assertEquals(1, compiled.sectionCount());
+		assertEquals(2, track.compile().sectionCount());
+	}
+	
+	@Test
+	public void compiledLocationKeyTest() {
+		Track track = new Track();
+		track.addSection(AB);
+		track.addSection(BC);
+		CompiledTrack compiled = track.compile();
+		
+		JunctionBranch b = new JunctionBranch(B, Branch.NORMAL);
+		JunctionBranch a = new JunctionBranch(A, Branch.FACING);
+		Location along = new Location(AB, a, 4);
+		Location atB = new Location(AB, b, 0);
+		long key = compiled.locationKey(along);
+		assertEquals(key, compiled.locationKey(new Location(AB, b, 5)));
+		assertEquals(compiled.locationKey(atB), compiled.locationKey(new Location(BC,
+				new JunctionBranch(B, Branch.FACING), 0)));
+		assertNotEquals(key, compiled.locationKey(new Location(AB, a, 5)));
+		assertNotEquals(key, compiled.locationKey(atB));
+		
+		assertEquals(along, compiled.location(key));
+		assertEquals(atB, compiled.location(compiled.locationKey(atB)));
+		
+		Section elsewhere = new Section(3, new JunctionBranch(new Junction("X"), Branch.FACING),
+				new JunctionBranch(new Junction("Y"), Branch.FACING));
+		assertEquals(CompiledTrack.NO_LOCATION, compiled.locationKey(new Location(elsewhere,
+				new JunctionBranch(new Junction("X"), Branch.FACING), 1)));
+	}
+}
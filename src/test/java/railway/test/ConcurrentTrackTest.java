@@ -0,0 +1,194 @@
+package railway.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import railway.Branch;
+import railway.CompiledTrack;
+import railway.ConcurrentTrack;
+import railway.InvalidTrackException;
+import railway.Junction;
+import railway.JunctionBranch;
+import railway.Location;
+import railway.Section;
+
+/**
+ * Basic tests for the {@link ConcurrentTrack} implementation class.
+ * 
+ * @author Addison Gourluck
+ */
+public class ConcurrentTrackTest {
+	
+	private static Section section(int length, String from, Branch fromBranch, String to,
+			Branch toBranch) {
+		return new Section(length, new JunctionBranch(new Junction(from), fromBranch),
+				new JunctionBranch(new Junction(to), toBranch));
+	}
+	
+	@Test
+	public void concurrentTrackBasicTest() {
+		Section ab = section(9, "A", Branch.FACING, "B", Branch.NORMAL);
+		Section bc = section(20, "B", Branch.FACING, "C", Branch.REVERSE);
+		
+		ConcurrentTrack track = new ConcurrentTrack();
+		track.addSection(ab);
+		track.addSections(Arrays.asList(bc, ab));
+		assertTrue(track.contains(ab));
+		assertTrue(track.contains(bc));
+		assertSame(bc, track.getTrackSection(new Junction("C"), Branch.REVERSE));
+		assertNull(track.getTrackSection(new Junction("C"), Branch.FACING));
+		assertEquals(2, track.getDegree(new Junction("B")));
+		assertEquals(new HashSet<>(Arrays.asList(new Junction("A"), new Junction("B"),
+				new Junction("C"))), track.getJunctions());
+		assertTrue(track.checkInvariant());
+		
+		CompiledTrack compiled = track.compile();
+		assertSame(compiled, track.compile());
+		assertEquals(29, track.shortestRoute(new Location(ab, ab.getEndPoints().iterator()
+				.next(), 0), new Location(bc, new JunctionBranch(new Junction("C"),
+						Branch.REVERSE), 0)).getLength());
+						
+		track.removeSection(ab);
+		assertFalse(track.contains(ab));
+		assertEquals(0, track.getDegree(new Junction("A")));
+		assertEquals(1, track.getDegree(new Junction("B")));
+		assertTrue(track.checkInvariant());
+		assertEquals(1, track.compile().sectionCount());
+	}
+	
+	@Test(expected = InvalidTrackException.class)
+	public void concurrentTrackInvalidAdditionTest() {
+		ConcurrentTrack track = new ConcurrentTrack();
+		track.addSection(section(9, "A", Branch.FACING, "B", Branch.NORMAL));
+		track.addSection(section(5, "A", Branch.FACING, "C", Branch.NORMAL));
+	}
+	
+	@Test
+	public void concurrentTrackInvalidBatchTest() {
+		ConcurrentTrack track = new ConcurrentTrack();
+		try {
+			track.addSections(Arrays.asList(section(9, "A", Branch.FACING, "B", Branch.NORMAL),
+					section(5, "A", Branch.FACING, "C", Branch.NORMAL)));
+		} catch (InvalidTrackException e) {
+			// expected
+		}
+		assertFalse(track.iterator().hasNext());
+		assertTrue(track.getJunctions().isEmpty());
+	}
+	
+	/** Threads adding sections to separate junctions, and racing for the same end-points **/
+	@Test
+	public void concurrentTrackThreadsTest() throws Exception {
+		final int threads = 8;
+		final int perThread = 500;
+		ConcurrentTrack track = new ConcurrentTrack();
+		AtomicInteger conflicts = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			final int thread = t;
+			futures.add(pool.submit(() -> {
+				for (int i = 0; i < perThread; i++) {
+					// Each thread has its own chain of junctions...
+					track.addSection(section(1 + i, "t" + thread + "-" + i, Branch.FACING,
+							"t" + thread + "-" + (i + 1), Branch.NORMAL));
+					// ... but every thread tries to claim the same shared end-points
+					try {
+						track.addSection(section(1 + thread, "shared" + i, Branch.FACING,
+								"t" + thread + "-" + i, Branch.REVERSE));
+					} catch (InvalidTrackException e) {
+						conflicts.incrementAndGet();
+					}
+					track.getTrackSection(new Junction("shared" + i), Branch.FACING);
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+		
+		// Exactly one thread won each shared end-point
+		assertEquals((threads - 1) * perThread, conflicts.get());
+		Set<Section> sections = new HashSet<>();
+		for (Section section : track) {
+			sections.add(section);
+		}
+		assertEquals(threads * perThread + perThread, sections.size());
+		assertEquals(sections.size(), track.compile().sectionCount());
+		assertTrue(track.checkInvariant());
+	}
+	
+	/** Compiling while writers keep replacing the sections on the same end-points **/
+	@Test
+	public void concurrentTrackSnapshotTest() throws Exception {
+		final int threads = 4;
+		ConcurrentTrack track = new ConcurrentTrack();
+		for (int t = 0; t < threads; t++) {
+			track.addSection(section(1, "s" + t, Branch.FACING, "e" + t, Branch.NORMAL));
+		}
+		// A line that isn't changed, so that each copy takes long enough for writers to interfere
+		int fixed = 5000;
+		for (int i = 0; i < fixed; i++) {
+			track.addSection(section(1, "f" + i, Branch.FACING, "f" + (i + 1), Branch.NORMAL));
+		}
+		AtomicBoolean done = new AtomicBoolean();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			final int thread = t;
+			futures.add(pool.submit(() -> {
+				for (int i = 1; !done.get(); i++) {
+					track.removeSection(section(i, "s" + thread, Branch.FACING, "e" + thread,
+							Branch.NORMAL));
+					track.addSection(section(i + 1, "s" + thread, Branch.FACING, "e" + thread,
+							Branch.NORMAL));
+				}
+			}));
+		}
+		
+		// A copy that saw the old section before its removal and the new one after its addition
+		// would have two sections on the same end-points
+		try {
+			for (int i = 0; i < 200; i++) {
+				CompiledTrack compiled = track.compile();
+				int occupied = 0;
+				for (int slot = 0; slot < compiled.slotCount(); slot++) {
+					if (compiled.sectionAt(slot) != CompiledTrack.NONE) {
+						occupied++;
+					}
+				}
+				assertTrue(compiled.sectionCount() <= threads + fixed);
+				assertEquals(2 * compiled.sectionCount(), occupied);
+			}
+			done.set(true);
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			done.set(true);
+			pool.shutdown();
+		}
+		assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(threads + fixed, track.compile().sectionCount());
+		assertTrue(track.checkInvariant());
+	}
+}
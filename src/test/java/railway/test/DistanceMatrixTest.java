@@ -0,0 +1,69 @@
+package railway.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import railway.Branch;
+import railway.DistanceMatrix;
+import railway.Junction;
+import railway.JunctionBranch;
+import railway.Location;
+import railway.Route;
+import railway.Section;
+import railway.Track;
+
+/**
+ * Basic tests for the {@link DistanceMatrix} implementation class.
+ * 
+ * @author Addison Gourluck
+ */
+public class DistanceMatrixTest {
+	
+	@Test
+	public void matrixAgreesWithRoutesTest() {
+		Track track = new Track();
+		for (int i = 0; i < 12; i++) {
+			Junction here = new Junction("J" + i);
+			track.addSection(new Section(5 + i, new JunctionBranch(here, Branch.FACING),
+					new JunctionBranch(new Junction("J" + (i + 1)), Branch.NORMAL)));
+			track.addSection(new Section(2, new JunctionBranch(here, Branch.REVERSE),
+					new JunctionBranch(new Junction("S" + i), Branch.FACING)));
+		}
+		
+		DistanceMatrix matrix = DistanceMatrix.compute(track.compile(), new ForkJoinPool(3));
+		assertEquals(track.getJunctions().size(), matrix.size());
+		for (Junction from : track.getJunctions()) {
+			for (Junction to : track.getJunctions()) {
+				Route route = track.shortestRoute(at(track, from), at(track, to));
+				int expected = (route == null) ? DistanceMatrix.UNREACHABLE : route.getLength();
+				assertEquals(from + " to " + to, expected, matrix.distance(from, to));
+			}
+		}
+		
+		// A train from J1 can't get onto the siding at J3, which points the other way
+		assertEquals(DistanceMatrix.UNREACHABLE,
+				matrix.distance(new Junction("J1"), new Junction("S3")));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void matrixUnknownJunctionTest() {
+		Track track = new Track();
+		track.addSection(new Section(5, new JunctionBranch(new Junction("A"), Branch.FACING),
+				new JunctionBranch(new Junction("B"), Branch.FACING)));
+		DistanceMatrix.compute(track).distance(new Junction("A"), new Junction("C"));
+	}
+	
+	/** Returns a location at the given junction of the track */
+	private static Location at(Track track, Junction junction) {
+		for (Branch branch : Branch.values()) {
+			Section section = track.getTrackSection(junction, branch);
+			if (section != null) {
+				return new Location(section, new JunctionBranch(junction, branch), 0);
+			}
+		}
+		throw new IllegalArgumentException(junction + " is not on the track");
+	}
+}
@@ -2,6 +2,7 @@ package railway.test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
@@ -60,6 +61,18 @@ public class JunctionBranchTest {
 		assertEquals(alpha.hashCode(), alpha2.hashCode());
 	}
 	
+	@Test
+	public void junctionBranchCanonicalTest() {
+		JunctionBranch canonical = JunctionBranch.of(A, Branch.NORMAL);
+		
+		assertTrue("There should only be one canonical instance per junction and branch.",
+				canonical == JunctionBranch.of(new Junction("A"), Branch.NORMAL));
+		assertTrue(canonical.getJunction() == Junction.of("A"));
+		assertEquals(new JunctionBranch(A, Branch.NORMAL), canonical);
+		assertEquals(new JunctionBranch(A, Branch.NORMAL).hashCode(), canonical.hashCode());
+		assertNotEquals(JunctionBranch.of(A, Branch.REVERSE), canonical);
+	}
+	
 	/*// no work done - copy past atm
 	@Test
 	public void junctionInvariantTest() {
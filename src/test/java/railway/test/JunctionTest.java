@@ -7,6 +7,8 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.when;
 
+import java.lang.ref.WeakReference;
+
 import org.junit.Test;
 import org.mockito.Mockito;
 
@@ -62,6 +64,36 @@ public class JunctionTest {
 		assertNotEquals(message, alpha.hashCode(), gamma.hashCode());
 	}
 	
+	@Test
+	public void junctionInternTest() {
+		Junction interned = Junction.of("A");
+		
+		assertTrue("Interning the same id twice should give the same object.",
+				interned == Junction.of(new String("A")));
+		assertEquals(new Junction("A"), interned);
+		assertEquals(new Junction("A").hashCode(), interned.hashCode());
+		assertNotEquals(Junction.of("B"), interned);
+	}
+	
+	@Test
+	public void junctionInternReleaseTest() {
+		// Collection isn't guaranteed, so this only checks that a junction is interned again
+		// correctly, whether or not the unused one was released
+		WeakReference<Junction> unused = new WeakReference<>(Junction.of("Released"));
+		System.gc();
+		Junction interned = Junction.of("Released");
+		Junction previous = unused.get();
+		assertTrue("A junction still in use should not be replaced.",
+				previous == null || previous == interned);
+		assertTrue(interned == Junction.of("Released"));
+		assertTrue(interned.checkInvariant());
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void junctionInternNullTest() {
+		Junction.of(null);
+	}
+	
 	@Test
 	public void junctionInvariantTest() {
 		// Create a mock junction
@@ -5,6 +5,10 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.junit.Test;
 
 import railway.Branch;
@@ -132,4 +136,40 @@ public class LocationTest {
 		location2 = new Location(section1, B, 4);
 		assertNotEquals(location1, location2);
 	}
-}
\ No newline at end of file
+	
+	/** Equivalent locations are equal, with equal hash codes, however they are described */
+	@Test
+	public void testCanonicalEquality() {
+		JunctionBranch a1 = new JunctionBranch(new Junction("A"), Branch.FACING);
+		JunctionBranch a2 = new JunctionBranch(new Junction("A"), Branch.REVERSE);
+		JunctionBranch b1 = new JunctionBranch(new Junction("B"), Branch.NORMAL);
+		Section section = new Section(9, a1, b1);
+		Section reversed = new Section(9, b1, a1);
+		Section other = new Section(4, a2, new JunctionBranch(new Junction("C"), Branch.FACING));
+		
+		// At a junction, on different sections and branches
+		assertEquals(new Location(section, a1, 0), new Location(other, a2, 0));
+		assertEquals(new Location(section, a1, 0).hashCode(), new Location(other, a2, 0)
+				.hashCode());
+		assertNotEquals(new Location(section, a1, 0), new Location(section, b1, 0));
+		
+		// Part-way along a section, described from either end, or with its end-points reversed
+		Location location = new Location(section, a1, 3);
+		for (Location same : new Location[] { new Location(section, b1, 6),
+				new Location(reversed, a1, 3), new Location(reversed, b1, 6) }) {
+			assertEquals(location, same);
+			assertEquals(location.hashCode(), same.hashCode());
+			assertTrue(same.checkInvariant());
+		}
+		assertNotEquals(location, new Location(section, a1, 4));
+		assertNotEquals(location, new Location(section, b1, 3));
+		assertNotEquals(location, new Location(section, a1, 0));
+		
+		// The same offset on a different section
+		assertNotEquals(new Location(other, a2, 3), location);
+		
+		Set<Location> locations = new HashSet<>(Arrays.asList(location, new Location(section, b1,
+				6), new Location(section, a1, 0), new Location(other, a2, 0)));
+		assertEquals(2, locations.size());
+	}
+}
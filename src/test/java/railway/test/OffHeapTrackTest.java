@@ -0,0 +1,235 @@
+package railway.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import railway.Branch;
+import railway.InvalidTrackException;
+import railway.Junction;
+import railway.JunctionBranch;
+import railway.OffHeapTrack;
+import railway.Section;
+import railway.Track;
+
+/**
+ * Tests for the {@link OffHeapTrack} implementation class, and the tables it keeps outside the
+ * heap.
+ * 
+ * @author Addison Gourluck
+ */
+public class OffHeapTrackTest {
+	
+	/** Returns the section from (from, FACING) to (to, NORMAL) **/
+	private static Section line(int length, String from, String to) {
+		return new Section(length, new JunctionBranch(new Junction(from), Branch.FACING),
+				new JunctionBranch(new Junction(to), Branch.NORMAL));
+	}
+	
+	/** Asserts that the track finds each of the given sections by both of its end-points **/
+	private static void assertFindsAll(OffHeapTrack track, List<Section> sections) {
+		assertEquals(sections.size(), track.size());
+		for (Section section : sections) {
+			assertTrue(track.contains(section));
+			for (JunctionBranch endPoint : section.getEndPoints()) {
+				assertEquals(section, track.getTrackSection(endPoint.getJunction(),
+						endPoint.getBranch()));
+			}
+		}
+	}
+	
+	/** Test that every table keeps its entries as it grows past its initial size **/
+	@Test
+	public void offHeapTrackGrowthTest() {
+		OffHeapTrack track = new OffHeapTrack();
+		long initialBytes = track.offHeapBytes();
+		List<Section> sections = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			// Identifiers of several bytes in UTF-8, so that the names outgrow their storage too
+			Section section = line(1 + i % 50, "\u00e9toile " + i, "\u00e9toile " + (i + 1));
+			track.addSection(section);
+			sections.add(section);
+		}
+		assertTrue(track.offHeapBytes() > initialBytes);
+		assertFindsAll(track, sections);
+		assertEquals(1, track.getDegree(new Junction("\u00e9toile 0")));
+		assertEquals(2, track.getDegree(new Junction("\u00e9toile 2500")));
+		assertEquals(1, track.getDegree(new Junction("\u00e9toile 5000")));
+		assertTrue(track.checkInvariant());
+	}
+	
+	/** Test that stored identifiers are matched exactly, whatever their encoding in UTF-8 **/
+	@Test
+	public void offHeapTrackNamesTest() {
+		OffHeapTrack track = new OffHeapTrack();
+		// One to four bytes per character
+		List<Section> sections = new ArrayList<>();
+		sections.add(line(1, "Aa", "\u20ac"));
+		sections.add(line(2, "\u20ac x", "\ud83d\ude82"));
+		sections.add(line(3, "\ud83d\ude82 x", "z"));
+		for (Section section : sections) {
+			track.addSection(section);
+		}
+		assertFindsAll(track, sections);
+		
+		// "BB" has the same hash as "Aa", so only the comparison of the names tells them apart
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+		assertEquals(0, track.getDegree(new Junction("BB")));
+		assertEquals(0, track.getDegree(new Junction("\u20ac ")));
+		assertEquals(0, track.getDegree(new Junction("\ud83d")));
+		assertTrue(track.checkInvariant());
+	}
+	
+	/** Test that removing end-points from crowded probe sequences leaves the rest reachable **/
+	@Test
+	public void offHeapTrackProbeChainTest() {
+		// 512 sections fill half of the initial end-point table, without growing it, so there are
+		// long runs of occupied buckets for removals to shift back through
+		OffHeapTrack track = new OffHeapTrack();
+		long initialBytes = track.offHeapBytes();
+		List<Section> sections = new ArrayList<>();
+		for (int i = 0; i < 512; i++) {
+			Section section = line(7, "p" + i, "q" + i);
+			track.addSection(section);
+			sections.add(section);
+		}
+		
+		Collections.shuffle(sections, new Random(31));
+		while (!sections.isEmpty()) {
+			Section removed = sections.remove(sections.size() - 1);
+			track.removeSection(removed);
+			assertFalse(track.contains(removed));
+			assertFindsAll(track, sections);
+			assertTrue(track.checkInvariant());
+		}
+		assertFalse(track.iterator().hasNext());
+		
+		// Nothing grew, and the emptied table can be filled again
+		assertEquals(initialBytes, track.offHeapBytes());
+		track.addSection(line(7, "q0", "p0"));
+		assertEquals(initialBytes, track.offHeapBytes());
+		assertTrue(track.checkInvariant());
+	}
+	
+	/** Test that the records of removed sections are used for new ones **/
+	@Test
+	public void offHeapTrackRecordReuseTest() {
+		OffHeapTrack track = new OffHeapTrack();
+		List<Section> first = new ArrayList<>();
+		List<Section> second = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			first.add(line(3, "a" + i, "b" + i));
+			second.add(line(4, "b" + i, "a" + i));
+		}
+		for (Section section : first) {
+			track.addSection(section);
+		}
+		long bytes = track.offHeapBytes();
+		
+		for (Section section : first) {
+			track.removeSection(section);
+		}
+		for (Section section : second) {
+			track.addSection(section);
+		}
+		assertEquals("Freed records should be reused.", bytes, track.offHeapBytes());
+		assertFindsAll(track, second);
+		
+		Set<Section> iterated = new HashSet<>();
+		for (Section section : track) {
+			iterated.add(section);
+		}
+		assertEquals(new HashSet<>(second), iterated);
+		assertTrue(track.checkInvariant());
+	}
+	
+	@Test(expected = ConcurrentModificationException.class)
+	public void offHeapTrackIteratorAddTest() {
+		OffHeapTrack track = new OffHeapTrack();
+		track.addSection(line(1, "A", "B"));
+		track.addSection(line(1, "B", "C"));
+		Iterator<Section> it = track.iterator();
+		it.next();
+		track.addSection(line(1, "C", "D"));
+		it.next();
+	}
+	
+	@Test(expected = ConcurrentModificationException.class)
+	public void offHeapTrackIteratorRemoveTest() {
+		OffHeapTrack track = new OffHeapTrack();
+		track.addSection(line(1, "A", "B"));
+		track.addSection(line(1, "B", "C"));
+		Iterator<Section> it = track.iterator();
+		it.next();
+		// Removing a section that isn't there does not modify the track
+		track.removeSection(line(1, "C", "D"));
+		it.next();
+		track.removeSection(line(1, "A", "B"));
+		it.next();
+	}
+	
+	/** Randomly add and remove many sections, and compare with a Track **/
+	@Test
+	public void offHeapTrackRandomTest() {
+		Random random = new Random(23);
+		Branch[] branches = Branch.values();
+		Track expected = new Track();
+		OffHeapTrack track = new OffHeapTrack();
+		List<Section> added = new ArrayList<>();
+		for (int i = 0; i < 50000; i++) {
+			if (random.nextInt(4) > 0 || added.isEmpty()) {
+				JunctionBranch from = new JunctionBranch(new Junction("j" + random.nextInt(5000)),
+						branches[random.nextInt(3)]);
+				JunctionBranch to = new JunctionBranch(new Junction("j" + random.nextInt(5000)),
+						branches[random.nextInt(3)]);
+				if (from.equals(to)) {
+					continue;
+				}
+				Section section = new Section(1 + random.nextInt(100), from, to);
+				boolean valid = true;
+				try {
+					expected.addSection(section);
+				} catch (InvalidTrackException e) {
+					valid = false;
+				}
+				try {
+					track.addSection(section);
+					assertTrue(valid);
+					added.add(section);
+				} catch (InvalidTrackException e) {
+					assertFalse(valid);
+				}
+			} else {
+				Section section = added.remove(random.nextInt(added.size()));
+				expected.removeSection(section);
+				track.removeSection(section);
+			}
+		}
+		assertTrue(track.checkInvariant());
+		
+		Set<Section> sections = new HashSet<>();
+		for (Section section : track) {
+			sections.add(section);
+		}
+		Set<Section> expectedSections = new HashSet<>();
+		for (Section section : expected) {
+			expectedSections.add(section);
+		}
+		assertEquals(expectedSections, sections);
+		for (int i = 0; i < 5000; i++) {
+			Junction junction = new Junction("j" + i);
+			assertEquals(expected.getDegree(junction), track.getDegree(junction));
+		}
+	}
+}
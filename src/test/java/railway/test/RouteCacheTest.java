@@ -0,0 +1,206 @@
+package railway.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import railway.Branch;
+import railway.Junction;
+import railway.JunctionBranch;
+import railway.Location;
+import railway.Route;
+import railway.RouteCache;
+import railway.Section;
+import railway.Track;
+
+/**
+ * Basic tests for the {@link RouteCache} implementation class.
+ * 
+ * @author Addison Gourluck
+ */
+public class RouteCacheTest {
+	
+	private static final JunctionBranch A_FACING = new JunctionBranch(new Junction("A"), Branch.FACING);
+	private static final JunctionBranch A_NORMAL = new JunctionBranch(new Junction("A"), Branch.NORMAL);
+	private static final JunctionBranch B_FACING = new JunctionBranch(new Junction("B"), Branch.FACING);
+	private static final JunctionBranch B_NORMAL = new JunctionBranch(new Junction("B"), Branch.NORMAL);
+	private static final JunctionBranch B_REVERSE = new JunctionBranch(new Junction("B"), Branch.REVERSE);
+	private static final JunctionBranch C_FACING = new JunctionBranch(new Junction("C"), Branch.FACING);
+	private static final JunctionBranch D_FACING = new JunctionBranch(new Junction("D"), Branch.FACING);
+	private static final JunctionBranch D_NORMAL = new JunctionBranch(new Junction("D"), Branch.NORMAL);
+	private static final JunctionBranch D_REVERSE = new JunctionBranch(new Junction("D"), Branch.REVERSE);
+	private static final JunctionBranch E_FACING = new JunctionBranch(new Junction("E"), Branch.FACING);
+	
+	private static final Section AB = new Section(10, A_FACING, B_NORMAL);
+	private static final Section BC = new Section(4, B_REVERSE, C_FACING);
+	private static final Section BD = new Section(2, B_FACING, D_FACING);
+	private static final Section LOOP = new Section(20, D_NORMAL, D_REVERSE);
+	
+	/** Test hits, misses and invalidation as the track changes **/
+	@Test
+	public void routeCacheInvalidationTest() {
+		Track track = new Track();
+		track.addSection(AB);
+		track.addSection(BC);
+		RouteCache cache = new RouteCache(track, 10);
+		Location a = new Location(AB, A_FACING, 0);
+		Location c = new Location(BC, C_FACING, 0);
+		
+		assertNull(cache.shortestRoute(a, c));
+		assertNull(cache.shortestRoute(a, c));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		
+		// Connecting the balloon loop makes a route possible
+		track.addSection(BD);
+		track.addSection(LOOP);
+		assertEquals(1, cache.getInvalidations());
+		Route route = cache.shortestRoute(a, c);
+		assertEquals(38, route.getLength());
+		
+		// Equivalent descriptions of the same locations share the entry
+		Route partWay = cache.shortestRoute(new Location(AB, A_FACING, 3), c);
+		assertSame(partWay, cache.shortestRoute(new Location(AB, B_NORMAL, 7), c));
+		assertEquals(2, cache.getHits());
+		assertEquals(3, cache.getMisses());
+		
+		// Neither a section elsewhere, nor one that is too long to help, affects the route
+		track.addSection(new Section(3, new JunctionBranch(new Junction("X"), Branch.FACING),
+				new JunctionBranch(new Junction("Y"), Branch.FACING)));
+		track.addSection(new Section(38, A_NORMAL, E_FACING));
+		assertEquals(1, cache.getInvalidations());
+		assertSame(route, cache.shortestRoute(a, c));
+		
+		// Nor does removing a section that isn't on the route
+		track.removeSection(new Section(38, A_NORMAL, E_FACING));
+		assertSame(route, cache.shortestRoute(a, c));
+		
+		// But removing the loop does, for both routes
+		track.removeSection(LOOP);
+		assertNull(cache.shortestRoute(a, c));
+		assertEquals(1, cache.size());
+		assertEquals(3, cache.getInvalidations());
+		
+		cache.detach();
+		track.addSection(LOOP);
+		assertEquals(3, cache.getInvalidations());
+	}
+	
+	/** Test that new sections only affect the routes that start in their components **/
+	@Test
+	public void routeCacheComponentTest() {
+		Track track = new Track();
+		track.addSection(AB);
+		track.addSection(BD);
+		Section xy = new Section(3, new JunctionBranch(new Junction("X"), Branch.FACING),
+				new JunctionBranch(new Junction("Y"), Branch.NORMAL));
+		track.addSection(xy);
+		RouteCache cache = new RouteCache(track, 10);
+		Location a = new Location(AB, A_FACING, 0);
+		Location d = new Location(BD, D_FACING, 0);
+		Location x = new Location(xy, xy.getEndPoints().iterator().next(), 0);
+		Section longBC = new Section(40, B_REVERSE, C_FACING);
+		Location c = new Location(longBC, C_FACING, 0);
+		Route ad = cache.shortestRoute(a, d);
+		assertNull(cache.shortestRoute(x, a));
+		assertNull(cache.shortestRoute(a, c)); // C isn't on the track yet
+		
+		// A section in the component of X, and one that puts C on the track (too long to help
+		// the route from A to D)
+		track.addSection(new Section(1, new JunctionBranch(new Junction("Y"), Branch.FACING),
+				new JunctionBranch(new Junction("Z"), Branch.FACING)));
+		track.addSection(longBC);
+		assertEquals(1, cache.getInvalidations());
+		assertSame(ad, cache.shortestRoute(a, d));
+		assertNull(cache.shortestRoute(x, a));
+		
+		// Joining the components affects the route that was missing between them
+		track.addSection(new Section(50, new JunctionBranch(new Junction("X"), Branch.NORMAL),
+				D_NORMAL));
+		assertEquals(2, cache.getInvalidations());
+		assertEquals(1, cache.size());
+		assertSame(ad, cache.shortestRoute(a, d));
+	}
+	
+	/** Test that a shortcut added to one piece of a split component affects the routes in it **/
+	@Test
+	public void routeCacheSplitTest() {
+		// Which piece keeps the old component's representative depends on the junctions, so try
+		// many different names
+		for (int i = 0; i < 100; i++) {
+			JunctionBranch pNormal = branch("p" + i, Branch.NORMAL);
+			JunctionBranch aNormal = branch("a" + i, Branch.NORMAL);
+			JunctionBranch bNormal = branch("b" + i, Branch.NORMAL);
+			Section bridge = new Section(1, branch("r" + i, Branch.FACING), pNormal);
+			Section am = new Section(100, aNormal, branch("m" + i, Branch.FACING));
+			Section mb = new Section(100, branch("m" + i, Branch.NORMAL), bNormal);
+			Track track = new Track();
+			track.addSection(new Section(1, branch("r" + i, Branch.NORMAL),
+					branch("q" + i, Branch.FACING)));
+			track.addSection(bridge);
+			track.addSection(new Section(1, branch("p" + i, Branch.FACING),
+					branch("a" + i, Branch.FACING)));
+			track.addSection(am);
+			track.addSection(mb);
+			RouteCache cache = new RouteCache(track, 10);
+			Location a = new Location(am, aNormal, 0);
+			Location b = new Location(mb, bNormal, 0);
+			assertEquals(200, cache.shortestRoute(a, b).getLength());
+			
+			track.removeSection(bridge);
+			track.addSection(new Section(5, branch("a" + i, Branch.REVERSE),
+					branch("b" + i, Branch.REVERSE)));
+			assertEquals(5, cache.shortestRoute(a, b).getLength());
+		}
+	}
+	
+	private static JunctionBranch branch(String junction, Branch branch) {
+		return new JunctionBranch(new Junction(junction), branch);
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void routeCacheDetachedTest() {
+		Track track = new Track();
+		track.addSection(AB);
+		RouteCache cache = new RouteCache(track, 10);
+		cache.detach();
+		cache.shortestRoute(new Location(AB, A_FACING, 0), new Location(AB, B_NORMAL, 0));
+	}
+	
+	/** Test that the least recently used route is evicted **/
+	@Test
+	public void routeCacheEvictionTest() {
+		Track track = new Track();
+		track.addSection(AB);
+		track.addSection(BC);
+		track.addSection(BD);
+		track.addSection(LOOP);
+		RouteCache cache = new RouteCache(track, 2);
+		Location a = new Location(AB, A_FACING, 0);
+		Location b = new Location(BD, B_FACING, 0);
+		Location c = new Location(BC, C_FACING, 0);
+		
+		cache.shortestRoute(a, b);
+		cache.shortestRoute(a, c);
+		cache.shortestRoute(a, b);
+		cache.shortestRoute(b, c);
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+		
+		// a to c was the least recently used, so it went
+		cache.shortestRoute(a, b);
+		cache.shortestRoute(a, c);
+		assertEquals(2, cache.getHits());
+		assertEquals(4, cache.getMisses());
+		assertEquals(2, cache.getEvictions());
+		assertEquals(1.0 / 3, cache.getHitRate(), 1e-9);
+		assertEquals("RouteCache[2/2, 2 hits, 4 misses]", cache.toString());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void routeCacheCapacityTest() {
+		new RouteCache(new Track(), 0);
+	}
+}
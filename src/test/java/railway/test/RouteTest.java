@@ -0,0 +1,215 @@
+package railway.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import railway.Branch;
+import railway.Junction;
+import railway.JunctionBranch;
+import railway.Landmarks;
+import railway.Location;
+import railway.Route;
+import railway.Section;
+import railway.Track;
+
+/**
+ * Basic tests for {@link Track#shortestRoute(Location, Location)} and the {@link Route} class.
+ * 
+ * @author Addison Gourluck
+ */
+public class RouteTest {
+	
+	private static final JunctionBranch A_FACING = new JunctionBranch(new Junction("A"), Branch.FACING);
+	private static final JunctionBranch B_FACING = new JunctionBranch(new Junction("B"), Branch.FACING);
+	private static final JunctionBranch B_NORMAL = new JunctionBranch(new Junction("B"), Branch.NORMAL);
+	private static final JunctionBranch B_REVERSE = new JunctionBranch(new Junction("B"), Branch.REVERSE);
+	private static final JunctionBranch C_FACING = new JunctionBranch(new Junction("C"), Branch.FACING);
+	private static final JunctionBranch D_FACING = new JunctionBranch(new Junction("D"), Branch.FACING);
+	private static final JunctionBranch D_NORMAL = new JunctionBranch(new Junction("D"), Branch.NORMAL);
+	private static final JunctionBranch D_REVERSE = new JunctionBranch(new Junction("D"), Branch.REVERSE);
+	
+	// A train coming from A can't turn straight off towards C at B...
+	private static final Section AB = new Section(10, A_FACING, B_NORMAL);
+	private static final Section BC = new Section(4, B_REVERSE, C_FACING);
+	
+	// ... so it has to go around the balloon loop at D and come back
+	private static final Section BD = new Section(2, B_FACING, D_FACING);
+	private static final Section LOOP = new Section(20, D_NORMAL, D_REVERSE);
+	
+	/** Test that the switch rules are obeyed */
+	@Test
+	public void routeSwitchRulesTest() {
+		Track track = new Track();
+		track.addSection(AB);
+		track.addSection(BC);
+		
+		Location a = new Location(AB, A_FACING, 0);
+		Location c = new Location(BC, C_FACING, 0);
+		assertNull("A train can't go from a NORMAL branch straight to a REVERSE branch.",
+				track.shortestRoute(a, c));
+				
+		track.addSection(BD);
+		track.addSection(LOOP);
+		Route route = track.shortestRoute(a, c);
+		assertEquals(38, route.getLength());
+		assertEquals(Arrays.asList(AB, BD, LOOP, BD, BC), route.getSections());
+		assertTrue(route.checkInvariant());
+		
+		// Going the other way round is the same distance
+		assertEquals(38, track.shortestRoute(c, a).getLength());
+	}
+	
+	/** Test routes that start and end part-way along sections */
+	@Test
+	public void routeOffsetTest() {
+		Track track = new Track();
+		track.addSection(AB);
+		track.addSection(BC);
+		track.addSection(BD);
+		track.addSection(LOOP);
+		
+		Location onAB = new Location(AB, A_FACING, 3);
+		Location onBC = new Location(BC, C_FACING, 1);
+		Route route = track.shortestRoute(onAB, onBC);
+		assertEquals(7 + 2 + 20 + 2 + 3, route.getLength());
+		assertEquals(Arrays.asList(AB, BD, LOOP, BD, BC), route.getSections());
+		
+		// Staying on the one section, described from the other end
+		route = track.shortestRoute(onAB, new Location(AB, B_NORMAL, 2));
+		assertEquals(5, route.getLength());
+		assertEquals(Arrays.asList(AB), route.getSections());
+		
+		// Standing still at a junction
+		Location atB = new Location(BC, B_REVERSE, 0);
+		assertEquals(0, track.shortestRoute(atB, new Location(AB, B_NORMAL, 0)).getLength());
+		
+		// A train standing at a junction can set off on any branch
+		assertEquals(7, track.shortestRoute(atB, onAB).getLength());
+		assertEquals(3, track.shortestRoute(atB, onBC).getLength());
+	}
+	
+	/** Test that a route can leave its section and come back, if that's shorter than staying */
+	@Test
+	public void routeBypassTest() {
+		JunctionBranch aNormal = new JunctionBranch(new Junction("A"), Branch.NORMAL);
+		Section main = new Section(100, A_FACING, B_FACING);
+		Section bypass = new Section(10, aNormal, B_NORMAL);
+		Track track = new Track();
+		track.addSection(main);
+		track.addSection(bypass);
+		
+		Location start = new Location(main, A_FACING, 1);
+		Location end = new Location(main, A_FACING, 99);
+		Route route = track.shortestRoute(start, end);
+		assertEquals(1 + 10 + 1, route.getLength());
+		assertEquals(Arrays.asList(main, bypass, main), route.getSections());
+		
+		// The same, guided by landmarks
+		track.setLandmarkCount(2);
+		route = track.shortestRoute(start, end);
+		assertEquals(1 + 10 + 1, route.getLength());
+		assertEquals(Arrays.asList(main, bypass, main), route.getSections());
+		
+		// Staying on the section is still shorter for nearby locations
+		route = track.shortestRoute(start, new Location(main, A_FACING, 5));
+		assertEquals(4, route.getLength());
+		assertEquals(Arrays.asList(main), route.getSections());
+	}
+	
+	/** Test routes to and from locations that aren't on the track */
+	@Test
+	public void routeOffTrackTest() {
+		Track track = new Track();
+		track.addSection(AB);
+		
+		Location onAB = new Location(AB, A_FACING, 3);
+		assertNull(track.shortestRoute(onAB, new Location(BC, C_FACING, 1)));
+		assertNull(track.shortestRoute(new Location(BC, C_FACING, 0), onAB));
+	}
+	
+	/** Test that routes guided by landmarks are still the shortest routes */
+	@Test
+	public void routeLandmarksTest() {
+		// A long line of junctions, with a passing loop between each pair of them
+		Track track = new Track();
+		int junctions = 40;
+		for (int i = 0; i < junctions; i++) {
+			Junction here = new Junction("J" + i);
+			Junction next = new Junction("J" + (i + 1));
+			Junction loop = new Junction("L" + i);
+			track.addSection(new Section(10 + i % 7, new JunctionBranch(here, Branch.FACING),
+					new JunctionBranch(next, Branch.NORMAL)));
+			track.addSection(new Section(3, new JunctionBranch(here, Branch.REVERSE),
+					new JunctionBranch(loop, Branch.FACING)));
+			track.addSection(new Section(5 + i % 3, new JunctionBranch(loop, Branch.NORMAL),
+					new JunctionBranch(loop, Branch.REVERSE)));
+		}
+		
+		Track guided = new Track();
+		for (Section section : track) {
+			guided.addSection(section);
+		}
+		guided.setLandmarkCount(4);
+		
+		Landmarks landmarks = guided.compile().landmarks(4);
+		Location origin = location(track, new Junction("J0"));
+		for (int i = 0; i < junctions; i += 5) {
+			Location end = location(track, new Junction("J" + i));
+			assertTrue("Landmarks must never overestimate the distance.",
+					landmarks.lowerBound(new Junction("J0"), new Junction("J" + i))
+							<= track.shortestRoute(origin, end).getLength());
+							
+			for (Section from : track) {
+				Location start = new Location(from, from.getEndPoints().iterator().next(), 1);
+				Route expected = track.shortestRoute(start, end);
+				Route actual = guided.shortestRoute(start, end);
+				if (expected == null) {
+					assertNull(actual);
+				} else {
+					assertEquals(expected.getLength(), actual.getLength());
+				}
+			}
+		}
+		
+		// A change to the track keeps the landmarks, whose distances are computed again
+		List<Junction> chosen = landmarks(guided.compile().landmarks(4));
+		JunctionBranch siding = new JunctionBranch(new Junction("S"), Branch.FACING);
+		Section spur = new Section(50, new JunctionBranch(new Junction("J0"), Branch.NORMAL),
+				siding);
+		track.addSection(spur);
+		guided.addSection(spur);
+		Location end = new Location(spur, siding, 0);
+		for (Section from : track) {
+			Location start = new Location(from, from.getEndPoints().iterator().next(), 1);
+			Route expected = track.shortestRoute(start, end);
+			Route actual = guided.shortestRoute(start, end);
+			assertEquals(expected == null ? -1 : expected.getLength(),
+					actual == null ? -1 : actual.getLength());
+		}
+		assertEquals(chosen, landmarks(guided.compile().landmarks(4)));
+		assertTrue(guided.compile().landmarks(4).lowerBound(new Junction("S"),
+				new Junction("J1")) > 0);
+	}
+	
+	/** Returns the junctions of the given landmarks */
+	private static List<Junction> landmarks(Landmarks landmarks) {
+		List<Junction> junctions = new ArrayList<>();
+		for (int i = 0; i < landmarks.count(); i++) {
+			junctions.add(landmarks.getLandmark(i));
+		}
+		return junctions;
+	}
+	
+	/** Returns the location at the given junction, which must have a FACING branch */
+	private static Location location(Track track, Junction junction) {
+		return new Location(track.getTrackSection(junction, Branch.FACING),
+				new JunctionBranch(junction, Branch.FACING), 0);
+	}
+}
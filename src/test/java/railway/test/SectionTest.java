@@ -2,6 +2,7 @@ package railway.test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -132,6 +133,33 @@ public class SectionTest {
 		assertTrue(normalLoop.getEndPoints().contains(A2));
 	}
 	
+	@Test
+	public void sectionJunctionsTest() {
+		Section normal = new Section(1, A1, B1);
+		Section normalLoop = new Section(1, A1, A2);
+		
+		assertEquals(2, normal.getJunctions().size());
+		assertTrue(normal.getJunctions().contains(A));
+		assertTrue(normal.getJunctions().contains(B));
+		
+		assertEquals("A loop only has the one junction.", 1, normalLoop.getJunctions().size());
+		assertTrue(normalLoop.getJunctions().contains(A));
+	}
+	
+	@Test
+	public void sectionViewsReusedTest() {
+		// Tracks ask for these on every change, so they should not be made anew each time
+		Section section = new Section(1, A1, B1);
+		assertSame(section.getEndPoints(), section.getEndPoints());
+		assertSame(section.getJunctions(), section.getJunctions());
+	}
+	
+	@Test(expected = UnsupportedOperationException.class)
+	public void sectionEndPointsImmutableTest() {
+		Section section = new Section(1, A1, B1);
+		section.getEndPoints().add(A2); // Sections are immutable, so this should throw
+	}
+	
 	@Test(expected = IllegalArgumentException.class)
 	public void sectionOtherEndpointTest() {
 		Section normalSection = null;
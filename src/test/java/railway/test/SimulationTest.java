@@ -0,0 +1,111 @@
+package railway.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static railway.test.SwitchLayout.J;
+import static railway.test.SwitchLayout.JY;
+import static railway.test.SwitchLayout.JZ;
+import static railway.test.SwitchLayout.J_FACING;
+import static railway.test.SwitchLayout.J_NORMAL;
+import static railway.test.SwitchLayout.J_REVERSE;
+import static railway.test.SwitchLayout.X;
+import static railway.test.SwitchLayout.XJ;
+import static railway.test.SwitchLayout.Y;
+import static railway.test.SwitchLayout.Z;
+import static railway.test.SwitchLayout.track;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import railway.Branch;
+import railway.CompiledTrack;
+import railway.Junction;
+import railway.JunctionBranch;
+import railway.Location;
+import railway.Section;
+import railway.Simulation;
+import railway.SwitchSetting;
+import railway.SwitchStates;
+
+/**
+ * Basic tests for the {@link Simulation} implementation class.
+ * 
+ * @author Addison Gourluck
+ */
+public class SimulationTest {
+	
+	@Test
+	public void simulationSwitchRulesTest() {
+		Simulation simulation = new Simulation(track(), SwitchSetting.ALL_NORMAL,
+				new ForkJoinPool(2));
+		int normal = simulation.addTrain(new Location(XJ, X, 0), J_FACING, 5);
+		int reverse = simulation.addTrain(new Location(XJ, X, 2), J_FACING, 5);
+		int back = simulation.addTrain(new Location(JY, Y, 5), J_NORMAL, 6);
+		assertEquals(3, simulation.trainCount());
+		
+		simulation.step(3);
+		// 15m from X: through J on the NORMAL branch (the default), 5m along JY
+		assertEquals(new Location(JY, J_NORMAL, 5), simulation.getLocation(normal));
+		assertEquals(Y, simulation.getHeading(normal));
+		// 17m from X, likewise
+		assertEquals(new Location(JY, J_NORMAL, 7), simulation.getLocation(reverse));
+		// Arrived at J on its NORMAL branch after 15m, so must leave by FACING: 3m along XJ
+		assertEquals(new Location(XJ, X, 7), simulation.getLocation(back));
+		assertEquals(X, simulation.getHeading(back));
+	}
+	
+	@Test
+	public void simulationSwitchAndStopTest() {
+		SwitchStates switches = new SwitchStates(track());
+		Simulation simulation = new Simulation(switches.getTrack(), switches, new ForkJoinPool(1));
+		int train = simulation.addTrain(new Location(XJ, J_FACING, 4), J_FACING, 2);
+		
+		simulation.step(1);
+		assertEquals(new Location(XJ, J_FACING, 2), simulation.getLocation(train));
+		
+		// Reaching J exactly stops at it, still on XJ, as a cursor does
+		simulation.step(1);
+		assertEquals(new Location(XJ, J_FACING, 0), simulation.getLocation(train));
+		assertEquals(J_FACING, simulation.getHeading(train));
+		
+		// The switch is read when the train crosses J, so can still be thrown
+		switches.setSetting(J, Branch.REVERSE);
+		simulation.step(1);
+		assertEquals(new Location(JZ, J_REVERSE, 2), simulation.getLocation(train));
+		assertEquals(Z, simulation.getHeading(train));
+		
+		// Runs off the end of JZ, and stops at Z
+		simulation.step(100);
+		assertEquals(new Location(JZ, Z, 0), simulation.getLocation(train));
+		assertEquals(0, simulation.getSpeed(train), 0);
+		simulation.step(1);
+		assertEquals(new Location(JZ, Z, 0), simulation.getLocation(train));
+		assertTrue(simulation.trainsSteppedPerSecond() > 0);
+	}
+	
+	@Test
+	public void simulationManyTrainsTest() {
+		CompiledTrack track = track();
+		Simulation simulation = new Simulation(track, new SwitchStates(track), new ForkJoinPool(3));
+		for (int i = 0; i < 1000; i++) {
+			simulation.addTrain(new Location(XJ, X, i % 10), J_FACING, 1);
+		}
+		simulation.step(10);
+		for (int i = 0; i < 1000; i++) {
+			// The trains that started at X have only just reached J
+			Location expected = (i % 10 == 0) ? new Location(XJ, J_FACING, 0)
+					: new Location(JY, J_NORMAL, i % 10);
+			assertEquals(expected, simulation.getLocation(i));
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void simulationOffTrackTest() {
+		Section elsewhere = new Section(5, new JunctionBranch(new Junction("P"), Branch.FACING),
+				new JunctionBranch(new Junction("Q"), Branch.FACING));
+		JunctionBranch heading = elsewhere.getEndPoints().iterator().next();
+		new Simulation(track(), SwitchSetting.ALL_NORMAL).addTrain(new Location(elsewhere, heading,
+				1), heading, 1);
+	}
+}
@@ -0,0 +1,58 @@
+package railway.test;
+
+import java.util.Arrays;
+
+import railway.Branch;
+import railway.CompiledTrack;
+import railway.Junction;
+import railway.JunctionBranch;
+import railway.Section;
+import railway.Track;
+
+/**
+ * <p>
+ * The layout shared by the tests of moving trains through a switch: the junction J is approached
+ * from X on its FACING branch, and its switch leads on to Y by its NORMAL branch, or to Z by its
+ * REVERSE branch.
+ * </p>
+ * 
+ * <pre>
+ *               20m -- Y
+ * X -- 10m -- J
+ *               30m -- Z
+ * </pre>
+ * 
+ * @author Addison Gourluck
+ */
+final class SwitchLayout {
+	
+	static final Junction J = new Junction("J");
+	
+	static final JunctionBranch X = new JunctionBranch(new Junction("X"), Branch.FACING);
+	static final JunctionBranch J_FACING = new JunctionBranch(J, Branch.FACING);
+	static final JunctionBranch J_NORMAL = new JunctionBranch(J, Branch.NORMAL);
+	static final JunctionBranch J_REVERSE = new JunctionBranch(J, Branch.REVERSE);
+	static final JunctionBranch Y = new JunctionBranch(new Junction("Y"), Branch.FACING);
+	static final JunctionBranch Z = new JunctionBranch(new Junction("Z"), Branch.FACING);
+	
+	static final Section XJ = new Section(10, X, J_FACING);
+	static final Section JY = new Section(20, J_NORMAL, Y);
+	static final Section JZ = new Section(30, J_REVERSE, Z);
+	
+	private SwitchLayout() {
+	
+	}
+	
+	/**
+	 * Returns the compiled form of the layout, with any other sections given added to it.
+	 * 
+	 * @param others - Sections to add to the layout.
+	 * @return The compiled track.
+	 */
+	static CompiledTrack track(Section... others) {
+		Track track = new Track();
+		track.addSections(Arrays.asList(XJ, JY, JZ));
+		track.addSections(Arrays.asList(others));
+		return track.compile();
+	}
+}
@@ -0,0 +1,111 @@
+package railway.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static railway.test.SwitchLayout.J;
+import static railway.test.SwitchLayout.JY;
+import static railway.test.SwitchLayout.JZ;
+import static railway.test.SwitchLayout.J_FACING;
+import static railway.test.SwitchLayout.J_NORMAL;
+import static railway.test.SwitchLayout.J_REVERSE;
+import static railway.test.SwitchLayout.X;
+import static railway.test.SwitchLayout.XJ;
+import static railway.test.SwitchLayout.Y;
+import static railway.test.SwitchLayout.Z;
+import static railway.test.SwitchLayout.track;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import railway.Branch;
+import railway.CompiledTrack;
+import railway.Junction;
+import railway.JunctionBranch;
+import railway.Location;
+import railway.Section;
+import railway.SwitchStates;
+import railway.TrackCursor;
+
+/**
+ * Basic tests for the {@link SwitchStates} implementation class.
+ * 
+ * @author Addison Gourluck
+ */
+public class SwitchStatesTest {
+	
+	// Z has a second branch, so SwitchStates must choose its initial setting
+	private static final Junction Z_JUNCTION = Z.getJunction();
+	private static final JunctionBranch Z_REVERSE = new JunctionBranch(Z_JUNCTION, Branch.REVERSE);
+	private static final Section ZW = new Section(5, Z_REVERSE, new JunctionBranch(
+			new Junction("W"), Branch.FACING));
+			
+	@Test
+	public void switchStatesNextTest() {
+		CompiledTrack track = track(ZW);
+		SwitchStates states = new SwitchStates(track);
+		assertTrue(states.checkInvariant());
+		
+		// J defaults to NORMAL, and Z (with no NORMAL branch) to REVERSE
+		assertEquals(Branch.NORMAL, states.getSetting(J));
+		assertEquals(Branch.REVERSE, states.getSetting(Z_JUNCTION));
+		assertEquals(JY, states.next(J_FACING));
+		assertEquals(XJ, states.next(J_NORMAL));
+		assertEquals(XJ, states.next(J_REVERSE));
+		assertEquals(ZW, states.next(Z));
+		assertNull(states.next(Y));
+		
+		states.setSetting(J, Branch.REVERSE);
+		assertEquals(JZ, states.next(J_FACING));
+		int facing = track.slot(J_FACING);
+		assertEquals(track.slot(J_REVERSE), states.exit(facing));
+		assertEquals(track.sectionId(JZ), states.nextSection(facing));
+		
+		states.setSetting(Z_JUNCTION, Branch.NORMAL);
+		assertNull(states.next(Z));
+		assertTrue(states.checkInvariant());
+	}
+	
+	@Test
+	public void switchStatesBatchTest() {
+		SwitchStates states = new SwitchStates(track(ZW));
+		Map<Junction, Branch> batch = new HashMap<>();
+		batch.put(J, Branch.REVERSE);
+		batch.put(new Junction("Q"), Branch.REVERSE);
+		try {
+			states.throwSwitches(batch);
+		} catch (IllegalArgumentException e) {
+			// The whole batch is rejected
+		}
+		assertEquals(Branch.NORMAL, states.getSetting(J));
+		
+		batch.remove(new Junction("Q"));
+		batch.put(Z_JUNCTION, Branch.NORMAL);
+		states.throwSwitches(batch);
+		assertEquals(Branch.REVERSE, states.getSetting(J));
+		assertEquals(Branch.NORMAL, states.getSetting(Z_JUNCTION));
+		assertTrue(states.checkInvariant());
+	}
+	
+	@Test
+	public void switchStatesCursorTest() {
+		CompiledTrack track = track(ZW);
+		SwitchStates states = new SwitchStates(track);
+		states.setSetting(J, Branch.REVERSE);
+		TrackCursor cursor = new TrackCursor(track, states, new Location(XJ, X, 0), J_FACING);
+		cursor.advance(42);
+		assertEquals(new Location(ZW, Z_REVERSE, 2), cursor.getLocation());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void switchStatesFacingTest() {
+		new SwitchStates(track(ZW)).setSetting(J, Branch.FACING);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void switchStatesOffTrackTest() {
+		new SwitchStates(track(ZW)).getSetting(new Junction("Q"));
+	}
+}
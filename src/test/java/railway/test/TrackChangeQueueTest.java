@@ -0,0 +1,117 @@
+package railway.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import railway.Branch;
+import railway.InvalidTrackException;
+import railway.Junction;
+import railway.JunctionBranch;
+import railway.Section;
+import railway.Track;
+import railway.TrackChange;
+import railway.TrackChangeQueue;
+
+/**
+ * Basic tests for the {@link TrackChangeQueue} implementation class, and the change events that it
+ * receives from a {@link Track}.
+ * 
+ * @author Addison Gourluck
+ */
+public class TrackChangeQueueTest {
+	
+	private static final Section AB = new Section(9, new JunctionBranch(new Junction("A"),
+			Branch.FACING), new JunctionBranch(new Junction("B"), Branch.NORMAL));
+	private static final Section BC = new Section(20, new JunctionBranch(new Junction("B"),
+			Branch.FACING), new JunctionBranch(new Junction("C"), Branch.REVERSE));
+	private static final Section AC = new Section(5, new JunctionBranch(new Junction("A"),
+			Branch.FACING), new JunctionBranch(new Junction("C"), Branch.NORMAL));
+			
+	@Test
+	public void trackListenerTest() {
+		Track track = new Track();
+		List<TrackChange> changes = new ArrayList<>();
+		track.addTrackListener(changes::add);
+		
+		track.addSections(Arrays.asList(AB, BC));
+		track.addSection(AB); // already there, so no change
+		try {
+			track.addSection(AC);
+		} catch (InvalidTrackException e) {
+			// expected, and not a change
+		}
+		track.removeSection(AB);
+		track.removeSection(AB); // already gone
+		
+		assertEquals(2, changes.size());
+		assertEquals(Arrays.asList(AB, BC), changes.get(0).getAdded());
+		assertTrue(changes.get(0).getRemoved().isEmpty());
+		assertTrue(changes.get(1).getAdded().isEmpty());
+		assertEquals(Collections.singletonList(AB), changes.get(1).getRemoved());
+		assertTrue(changes.get(0).getVersion() < changes.get(1).getVersion());
+		assertEquals(track.snapshot().getVersion(), changes.get(1).getVersion());
+	}
+	
+	@Test
+	public void trackChangeQueueTest() throws InterruptedException {
+		Track track = new Track();
+		TrackChangeQueue queue = new TrackChangeQueue();
+		track.addTrackListener(queue);
+		assertNull(queue.poll());
+		assertNull(queue.poll(1, TimeUnit.MILLISECONDS));
+		
+		// Changes are merged, and changes that cancel out disappear
+		track.addSection(AB);
+		track.addSection(BC);
+		track.removeSection(AB);
+		TrackChange change = queue.poll();
+		assertEquals(Collections.singletonList(BC), change.getAdded());
+		assertTrue(change.getRemoved().isEmpty());
+		assertNull(queue.poll());
+		
+		track.removeSection(BC);
+		track.addSection(BC);
+		change = queue.poll(1, TimeUnit.SECONDS);
+		assertTrue(change.isEmpty());
+		assertEquals(track.snapshot().getVersion(), change.getVersion());
+		
+		track.removeTrackListener(queue);
+		track.removeSection(BC);
+		assertNull(queue.poll());
+	}
+	
+	@Test
+	public void trackChangeQueueThreadTest() throws InterruptedException {
+		Track track = new Track();
+		TrackChangeQueue queue = new TrackChangeQueue();
+		track.addTrackListener(queue);
+		Thread writer = new Thread(() -> {
+			for (int i = 0; i < 1000; i++) {
+				track.addSection(new Section(1 + i, new JunctionBranch(new Junction("j" + i),
+						Branch.FACING), new JunctionBranch(new Junction("j" + (i + 1)),
+								Branch.NORMAL)));
+			}
+		});
+		writer.start();
+		
+		int added = 0;
+		long version = -1;
+		while (added < 1000) {
+			TrackChange change = queue.poll(10, TimeUnit.SECONDS);
+			assertTrue(change.getVersion() > version);
+			version = change.getVersion();
+			added += change.getAdded().size();
+		}
+		writer.join();
+		assertEquals(1000, added);
+	}
+}
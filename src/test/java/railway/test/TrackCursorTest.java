@@ -0,0 +1,143 @@
+package railway.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static railway.test.SwitchLayout.J;
+import static railway.test.SwitchLayout.JY;
+import static railway.test.SwitchLayout.JZ;
+import static railway.test.SwitchLayout.J_FACING;
+import static railway.test.SwitchLayout.J_NORMAL;
+import static railway.test.SwitchLayout.J_REVERSE;
+import static railway.test.SwitchLayout.X;
+import static railway.test.SwitchLayout.XJ;
+import static railway.test.SwitchLayout.Y;
+import static railway.test.SwitchLayout.Z;
+import static railway.test.SwitchLayout.track;
+
+import org.junit.Test;
+
+import railway.Branch;
+import railway.CompiledTrack;
+import railway.Junction;
+import railway.JunctionBranch;
+import railway.Location;
+import railway.Section;
+import railway.SwitchSetting;
+import railway.SwitchStates;
+import railway.TrackCursor;
+
+/**
+ * Basic tests for the {@link TrackCursor} implementation class.
+ * 
+ * @author Addison Gourluck
+ */
+public class TrackCursorTest {
+	
+	@Test
+	public void cursorAdvanceTest() {
+		TrackCursor cursor = new TrackCursor(track(), SwitchSetting.ALL_NORMAL,
+				new Location(XJ, X, 2), J_FACING);
+		assertEquals(8, cursor.getRemaining());
+		assertFalse(cursor.atJunction());
+		
+		assertEquals(8, cursor.advance(8));
+		assertTrue(cursor.atJunction());
+		assertEquals(XJ, cursor.getSection());
+		assertEquals(new Location(JY, J_NORMAL, 0), cursor.getLocation());
+		
+		assertEquals(5, cursor.advance(5));
+		assertEquals(JY, cursor.getSection());
+		assertEquals(Y, cursor.getHeading());
+		assertEquals(new Location(JY, J_NORMAL, 5), cursor.getLocation());
+		
+		// Runs off the end of JY, and stops at Y
+		assertEquals(15, cursor.advance(100));
+		assertEquals(new Location(JY, Y, 0), cursor.getLocation());
+		assertEquals(0, cursor.advance(1));
+	}
+	
+	@Test
+	public void cursorExactArrivalTest() {
+		// Reaching a junction exactly stops at it, as a train in a Simulation does
+		TrackCursor cursor = new TrackCursor(track(), SwitchSetting.ALL_NORMAL,
+				new Location(XJ, X, 0), J_FACING);
+		assertEquals(10, cursor.advance(10));
+		assertEquals(XJ, cursor.getSection());
+		assertEquals(J_FACING, cursor.getHeading());
+		assertEquals(0, cursor.getRemaining());
+		
+		// And crosses it with the next move
+		assertEquals(1, cursor.advance(1));
+		assertEquals(new Location(JY, J_NORMAL, 1), cursor.getLocation());
+		
+		// Reaching a dead end exactly moves the whole distance, as there was somewhere to go
+		assertEquals(19, cursor.advance(19));
+		assertEquals(JY, cursor.getSection());
+		assertEquals(0, cursor.advance(1));
+	}
+	
+	@Test
+	public void cursorSwitchAndReverseTest() {
+		Branch[] settings = new Branch[] { Branch.NORMAL, Branch.NORMAL, Branch.NORMAL,
+				Branch.NORMAL };
+		CompiledTrack track = track();
+		TrackCursor cursor = new TrackCursor(track, junction -> settings[junction],
+				new Location(XJ, X, 0), J_FACING);
+		settings[track.junctionId(J)] = Branch.REVERSE;
+		cursor.advance(13);
+		assertEquals(new Location(JZ, J_REVERSE, 3), cursor.getLocation());
+		assertEquals(Z, cursor.getHeading());
+		
+		cursor.reverse();
+		assertEquals(J_REVERSE, cursor.getHeading());
+		assertEquals(3, cursor.getRemaining());
+		
+		// Arriving on REVERSE always leaves by FACING
+		cursor.advance(10);
+		assertEquals(new Location(XJ, X, 3), cursor.getLocation());
+		assertEquals(X, cursor.getHeading());
+		assertEquals("Distance 3 from X along the FACING branch, heading to " + X,
+				cursor.toString());
+	}
+	
+	@Test
+	public void cursorAllNormalTest() {
+		// Z has only a REVERSE branch beyond its FACING branch, which ALL_NORMAL never takes
+		Section zw = new Section(5, new JunctionBranch(Z.getJunction(), Branch.REVERSE),
+				new JunctionBranch(new Junction("W"), Branch.FACING));
+		CompiledTrack track = track(zw);
+		TrackCursor cursor = new TrackCursor(track, SwitchSetting.ALL_NORMAL,
+				new Location(JZ, J_REVERSE, 0), Z);
+		assertEquals(30, cursor.advance(40));
+		assertEquals(new Location(JZ, Z, 0), cursor.getLocation());
+		
+		// Whereas the initial SwitchStates set Z to REVERSE, so the cursor goes on to W
+		cursor = new TrackCursor(track, new SwitchStates(track), new Location(JZ, J_REVERSE, 0), Z);
+		assertEquals(32, cursor.advance(32));
+		assertEquals(zw, cursor.getSection());
+		assertEquals(3, cursor.getRemaining());
+	}
+	
+	@Test
+	public void cursorMoveToTest() {
+		TrackCursor cursor = new TrackCursor(track(), SwitchSetting.ALL_NORMAL,
+				new Location(XJ, X, 0), X);
+		assertTrue(cursor.atJunction());
+		assertEquals(0, cursor.advance(5));
+		cursor.moveTo(new Location(JZ, Z, 4), J_REVERSE);
+		assertEquals(26, cursor.getRemaining());
+		assertEquals(new Location(JZ, J_REVERSE, 26), cursor.getLocation());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void cursorNegativeAdvanceTest() {
+		new TrackCursor(track(), SwitchSetting.ALL_NORMAL, new Location(XJ, X, 0), J_FACING)
+				.advance(-1);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void cursorBadHeadingTest() {
+		new TrackCursor(track(), SwitchSetting.ALL_NORMAL, new Location(XJ, X, 0), Y);
+	}
+}
@@ -0,0 +1,106 @@
+package railway.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import railway.Section;
+import railway.Track;
+import railway.TrackFormatException;
+
+/**
+ * Tests for reading files in chunks with {@link Track#load(Path, int)}.
+ * 
+ * @author Addison Gourluck
+ */
+public class TrackLoaderTest {
+	
+	private static final String TEXT = "9 (j0, FACING) (j1, NORMAL)\r\n"
+			+ "20 (j1, FACING) (odd) (name, FACING, REVERSE)\n"
+			+ "\n"
+			+ "5 (j0, NORMAL) (j0, REVERSE)\n"
+			+ "13 (\u00e9toile, FACING) (j1, REVERSE)";
+	
+	private static final String MALFORMED = "9 (j0, FACING) (j1, NORMAL)\n"
+			+ "nine (j1, FACING) (j2, NORMAL)\n"
+			+ "\n"
+			+ "4 (j2, FACING) (j3, SIDEWAYS)\r\n"
+			+ "7 (j3, FACING) (j4, NORMAL)\n"
+			+ "0 (j4, FACING) (j5, NORMAL)\n";
+	
+	/** Test that lines which straddle the chunks are read whole, whatever the chunk size **/
+	@Test
+	public void chunkBoundaryTest() throws IOException {
+		Track expected = new Track();
+		expected.load(new StringReader(TEXT));
+		assertEquals(4, sections(expected).size());
+		
+		Path file = write(TEXT);
+		try {
+			int size = (int) Files.size(file);
+			for (int chunkSize = 1; chunkSize <= size + 1; chunkSize++) {
+				Track track = new Track();
+				track.load(file, chunkSize);
+				assertEquals("Chunk size " + chunkSize, sections(expected), sections(track));
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	/** Test that malformed lines are numbered from the start of the file, not their chunk **/
+	@Test
+	public void chunkLineNumbersTest() throws IOException {
+		Path file = write(MALFORMED);
+		try {
+			int size = (int) Files.size(file);
+			for (int chunkSize = 1; chunkSize <= size + 1; chunkSize++) {
+				Track track = new Track();
+				try {
+					track.load(file, chunkSize);
+					fail("Expected a TrackFormatException");
+				} catch (TrackFormatException e) {
+					assertEquals("Chunk size " + chunkSize, Arrays.asList(2L, 4L, 6L),
+							e.getLineNumbers());
+				}
+				assertEquals(0, sections(track).size());
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void chunkSizeTest() throws IOException {
+		Path file = write(TEXT);
+		try {
+			new Track().load(file, 0);
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	private static Set<Section> sections(Track track) {
+		Set<Section> sections = new HashSet<>();
+		for (Section section : track) {
+			sections.add(section);
+		}
+		return sections;
+	}
+	
+	private static Path write(String text) throws IOException {
+		Path file = Files.createTempFile("track", ".txt");
+		Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+}
@@ -0,0 +1,181 @@
+package railway.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import railway.Branch;
+import railway.CompiledTrack;
+import railway.Junction;
+import railway.JunctionBranch;
+import railway.Location;
+import railway.Section;
+import railway.SwitchSetting;
+import railway.SwitchStates;
+import railway.Track;
+import railway.TrackObjectIndex;
+
+/**
+ * Basic tests for the {@link TrackObjectIndex} implementation class.
+ * 
+ * @author Addison Gourluck
+ */
+public class TrackObjectIndexTest {
+	
+	private static final JunctionBranch A = new JunctionBranch(new Junction("A"), Branch.FACING);
+	private static final JunctionBranch B = new JunctionBranch(new Junction("B"), Branch.NORMAL);
+	private static final Section AB = new Section(100, A, B);
+	private static final Section BA = new Section(100, B, A);
+	private static final Section OTHER = new Section(50, new JunctionBranch(new Junction("A"),
+			Branch.NORMAL), new JunctionBranch(new Junction("C"), Branch.FACING));
+			
+	@Test
+	public void objectIndexRangeTest() {
+		TrackObjectIndex<String> index = new TrackObjectIndex<>();
+		index.put("signal", new Location(AB, A, 10));
+		index.put("balise", new Location(BA, B, 70)); // 30 from A
+		index.put("train", new Location(AB, A, 60));
+		index.put("elsewhere", new Location(OTHER, OTHER.getEndPoints().iterator().next(), 20));
+		assertEquals(4, index.size());
+		
+		assertEquals(Arrays.asList("signal", "balise", "train"), index.between(AB, A, 0, 100));
+		assertEquals(Arrays.asList("balise", "signal"), index.between(BA, B, 70, 95));
+		assertEquals(Collections.singletonList("balise"), index.between(AB, A, 30, 30));
+		assertTrue(index.between(AB, A, 61, 100).isEmpty());
+		assertTrue(index.between(new Section(7, A, B), A, 0, 7).isEmpty());
+		
+		// Moving an object
+		index.put("train", new Location(AB, B, 95)); // 5 from A
+		assertEquals(Arrays.asList("train", "signal", "balise"), index.between(AB, A, 0, 100));
+		assertEquals(new Location(AB, A, 5), index.getLocation("train"));
+		assertEquals(4, index.size());
+		
+		assertTrue(index.remove("signal"));
+		assertFalse(index.remove("signal"));
+		assertNull(index.getLocation("signal"));
+		assertEquals(Arrays.asList("train", "balise"), index.between(AB, A, 0, 100));
+	}
+	
+	@Test
+	public void objectIndexNextAlongTest() {
+		TrackObjectIndex<String> index = new TrackObjectIndex<>();
+		index.put("first", new Location(AB, A, 10));
+		index.put("second", new Location(AB, A, 40));
+		index.put("also second", new Location(BA, B, 60));
+		index.put("at B", new Location(AB, B, 0));
+		
+		assertEquals("first", index.nextAlong(new Location(AB, A, 0), B));
+		assertEquals("second", index.nextAlong(new Location(AB, A, 10), B));
+		assertEquals("at B", index.nextAlong(new Location(AB, A, 40), B));
+		assertEquals("second", index.nextAlong(new Location(AB, A, 20), B));
+		assertEquals("also second", index.nextAlong(new Location(AB, B, 1), A));
+		assertEquals("first", index.nextAlong(new Location(AB, A, 40), A));
+		assertNull(index.nextAlong(new Location(AB, A, 10), A));
+		assertNull(index.nextAlong(new Location(OTHER, OTHER.getEndPoints().iterator().next(), 1),
+				OTHER.getEndPoints().iterator().next()));
+	}
+	
+	@Test
+	public void objectIndexNextAcrossJunctionsTest() {
+		Junction d = new Junction("D");
+		Junction e = new Junction("E");
+		JunctionBranch eFacing = new JunctionBranch(e, Branch.FACING);
+		JunctionBranch eNormal = new JunctionBranch(e, Branch.NORMAL);
+		JunctionBranch fFacing = new JunctionBranch(new Junction("F"), Branch.FACING);
+		Section de = new Section(10, new JunctionBranch(d, Branch.FACING), eFacing);
+		Section normal = new Section(20, eNormal, fFacing);
+		JunctionBranch gFacing = new JunctionBranch(new Junction("G"), Branch.FACING);
+		Section reverse = new Section(30, new JunctionBranch(e, Branch.REVERSE), gFacing);
+		Track track = new Track();
+		track.addSections(Arrays.asList(de, normal, reverse));
+		CompiledTrack compiled = track.compile();
+		SwitchStates switches = new SwitchStates(compiled);
+		
+		TrackObjectIndex<String> index = new TrackObjectIndex<>();
+		index.put("on normal", new Location(normal, eNormal, 5));
+		index.put("on reverse", new Location(reverse, gFacing, 5));
+		index.put("on DE", new Location(de, eFacing, 7));
+		
+		// Arriving on the FACING branch, the switch decides which way to look
+		Location onDE = new Location(de, eFacing, 2);
+		assertNull(index.nextAlong(onDE, eFacing));
+		assertEquals("on normal", index.nextAlong(onDE, eFacing, compiled, switches));
+		switches.setSetting(e, Branch.REVERSE);
+		assertEquals("on reverse", index.nextAlong(onDE, eFacing, compiled, switches));
+		
+		// Arriving on the NORMAL branch, the way ahead is the FACING branch
+		Location onNormal = new Location(normal, eNormal, 2);
+		assertEquals("on DE", index.nextAlong(onNormal, eNormal, compiled, switches));
+		assertEquals("on DE", index.nextAlong(onNormal, eNormal, compiled,
+				SwitchSetting.ALL_NORMAL));
+				
+		// The track ends at F
+		assertNull(index.nextAlong(new Location(normal, eNormal, 10), fFacing, compiled, switches));
+		
+		// A layout that trains can go around forever
+		JunctionBranch hFacing = new JunctionBranch(new Junction("H"), Branch.FACING);
+		Section hi = new Section(4, hFacing, new JunctionBranch(new Junction("I"), Branch.FACING));
+		Track loops = new Track();
+		loops.addSections(Arrays.asList(hi, new Section(8, new JunctionBranch(new Junction("H"),
+				Branch.NORMAL), new JunctionBranch(new Junction("H"), Branch.REVERSE)),
+				new Section(8, new JunctionBranch(new Junction("I"), Branch.NORMAL),
+						new JunctionBranch(new Junction("I"), Branch.REVERSE))));
+		assertNull(index.nextAlong(new Location(hi, hFacing, 1), hFacing, loops.compile(),
+				SwitchSetting.ALL_NORMAL));
+	}
+	
+	@Test
+	public void objectIndexJunctionTest() {
+		// An object at A is only indexed on the section it was placed on, not on OTHER
+		JunctionBranch aNormal = new JunctionBranch(new Junction("A"), Branch.NORMAL);
+		TrackObjectIndex<String> index = new TrackObjectIndex<>();
+		index.put("at A", new Location(AB, A, 0));
+		assertEquals(Collections.singletonList("at A"), index.between(AB, A, 0, 0));
+		assertTrue(index.between(OTHER, aNormal, 0, 0).isEmpty());
+		assertNull(index.nextAlong(new Location(OTHER, aNormal, 10), aNormal));
+	}
+	
+	@Test
+	public void objectIndexEmptiedSectionTest() throws InterruptedException {
+		// Threads that each keep emptying and refilling the same section, with their own object
+		TrackObjectIndex<Integer> index = new TrackObjectIndex<>();
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			int object = i;
+			threads[i] = new Thread(() -> {
+				for (int j = 0; j < 20000; j++) {
+					index.put(object, new Location(AB, A, j % 100));
+					index.remove(object);
+				}
+				index.put(object, new Location(AB, A, object));
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		// No object was put in a skip list that had been dropped
+		assertEquals(Arrays.asList(0, 1, 2, 3), index.between(AB, A, 0, 100));
+		assertEquals(4, index.size());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void objectIndexOffTrackTest() {
+		Track track = new Track();
+		track.addSection(OTHER);
+		new TrackObjectIndex<String>().nextAlong(new Location(AB, A, 1), B, track.compile(),
+				SwitchSetting.ALL_NORMAL);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void objectIndexWrongEndPointTest() {
+		new TrackObjectIndex<String>().between(AB, new JunctionBranch(new Junction("C"),
+				Branch.FACING), 0, 10);
+	}
+}
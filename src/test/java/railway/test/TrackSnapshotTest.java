@@ -0,0 +1,121 @@
+package railway.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import railway.Branch;
+import railway.CompiledTrack;
+import railway.Junction;
+import railway.JunctionBranch;
+import railway.Section;
+import railway.Track;
+import railway.TrackSnapshot;
+
+/**
+ * Basic tests for the {@link TrackSnapshot} implementation class.
+ * 
+ * @author Addison Gourluck
+ */
+public class TrackSnapshotTest {
+	
+	private static final Junction A = new Junction("A");
+	private static final Junction B = new Junction("B\u00e9");
+	private static final Junction C = new Junction("");
+	
+	@Test
+	public void snapshotRoundTripTest() throws IOException {
+		Track track = new Track();
+		track.addSection(new Section(9, new JunctionBranch(A, Branch.FACING),
+				new JunctionBranch(B, Branch.NORMAL)));
+		track.addSection(new Section(20, new JunctionBranch(B, Branch.FACING),
+				new JunctionBranch(C, Branch.REVERSE)));
+		track.addSection(new Section(5, new JunctionBranch(A, Branch.NORMAL),
+				new JunctionBranch(A, Branch.REVERSE)));
+		
+		Path file = Files.createTempFile("track", ".snapshot");
+		try {
+			track.writeSnapshot(file);
+			TrackSnapshot snapshot = TrackSnapshot.open(file);
+			assertEquals(3, snapshot.junctionCount());
+			assertEquals(3, snapshot.sectionCount());
+			
+			// The snapshot is numbered in the same way as the compiled track
+			CompiledTrack compiled = track.compile();
+			for (int i = 0; i < snapshot.junctionCount(); i++) {
+				assertEquals(compiled.junction(i).getJunctionId(), snapshot.junctionId(i));
+				assertSame(Junction.of(snapshot.junctionId(i)), snapshot.junction(i));
+			}
+			for (int i = 0; i < snapshot.sectionCount(); i++) {
+				assertEquals(compiled.section(i), snapshot.section(i));
+				assertEquals(compiled.length(i), snapshot.length(i));
+				assertEquals(compiled.opposite(snapshot.firstEndPoint(i)),
+						snapshot.secondEndPoint(i));
+			}
+			
+			assertEquals(sections(track), sections(snapshot.toTrack()));
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	public void snapshotEmptyTest() throws IOException {
+		Path file = Files.createTempFile("track", ".snapshot");
+		try {
+			new Track().writeSnapshot(file);
+			TrackSnapshot snapshot = TrackSnapshot.open(file);
+			assertEquals(0, snapshot.junctionCount());
+			assertEquals(0, snapshot.sectionCount());
+			assertEquals(new HashSet<Section>(), sections(snapshot.toTrack()));
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	public void snapshotCorruptTest() throws IOException {
+		Path file = Files.createTempFile("track", ".snapshot");
+		try {
+			Files.write(file, "9 (A, FACING) (B, NORMAL)".getBytes("UTF-8"));
+			try {
+				TrackSnapshot.open(file);
+				fail("Expected an IOException");
+			} catch (IOException e) {
+				// expected
+			}
+			
+			Track track = new Track();
+			track.addSection(new Section(9, new JunctionBranch(A, Branch.FACING),
+					new JunctionBranch(B, Branch.NORMAL)));
+			track.writeSnapshot(file);
+			byte[] bytes = Files.readAllBytes(file);
+			Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+			try {
+				TrackSnapshot.open(file);
+				fail("Expected an IOException");
+			} catch (IOException e) {
+				// expected
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	private static Set<Section> sections(Track track) {
+		Set<Section> sections = new HashSet<>();
+		for (Section section : track) {
+			sections.add(section);
+		}
+		return sections;
+	}
+}
@@ -1,9 +1,19 @@
 package railway.test;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -14,6 +24,7 @@ import railway.Junction;
 import railway.JunctionBranch;
 import railway.Section;
 import railway.Track;
+import railway.TrackFormatException;
 
 /**
  * Basic tests for the {@link Track} implementation class.
@@ -175,4 +186,282 @@ public class TrackTest {
 		// check that the invariant has been established
 		Assert.assertTrue(track.checkInvariant());
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * Test that removing a section from the track also stops it being returned
+	 * for its end-points.
+	 **/
+	@Test
+	public void testRemoval() {
+		Junction j0 = new Junction("j0");
+		Junction j1 = new Junction("j1");
+		Section section = new Section(9, new JunctionBranch(j0, Branch.FACING),
+				new JunctionBranch(j1, Branch.REVERSE));
+				
+		Track track = new Track(); // the track under test
+		track.addSection(section);
+		Assert.assertEquals(section, track.getTrackSection(j1, Branch.REVERSE));
+		Assert.assertEquals(null, track.getTrackSection(j1, Branch.FACING));
+		
+		track.removeSection(section);
+		Assert.assertFalse(track.contains(section));
+		Assert.assertEquals(null, track.getTrackSection(j0, Branch.FACING));
+		Assert.assertEquals(null, track.getTrackSection(j1, Branch.REVERSE));
+		Assert.assertTrue(track.getJunctions().isEmpty());
+		Assert.assertEquals(0, track.getDegree(j0));
+	}
+	
+	/** Test the number of branches connected to each junction **/
+	@Test
+	public void testDegrees() {
+		Junction j0 = new Junction("j0");
+		Junction j1 = new Junction("j1");
+		Section loop = new Section(40, new JunctionBranch(j0, Branch.NORMAL),
+				new JunctionBranch(j0, Branch.REVERSE));
+		Section spur = new Section(9, new JunctionBranch(j0, Branch.FACING),
+				new JunctionBranch(j1, Branch.FACING));
+				
+		Track track = new Track(); // the track under test
+		track.addSection(loop);
+		track.addSection(spur);
+		Assert.assertEquals(3, track.getDegree(j0));
+		Assert.assertEquals(1, track.getDegree(j1));
+		Assert.assertEquals(new HashSet<>(Arrays.asList(j0, j1)), track.getJunctions());
+		
+		track.removeSection(spur);
+		Assert.assertEquals(2, track.getDegree(j0));
+		Assert.assertEquals(0, track.getDegree(j1));
+		Assert.assertEquals(Collections.singleton(j0), track.getJunctions());
+	}
+	
+	/**
+	 * Test that a batch containing two sections on the same end-point is
+	 * rejected without modifying the track.
+	 **/
+	@Test
+	public void testInvalidBatchAddition() {
+		Junction j0 = new Junction("j0");
+		Junction j1 = new Junction("j1");
+		Junction j2 = new Junction("j2");
+		Section first = new Section(9, new JunctionBranch(j0, Branch.FACING),
+				new JunctionBranch(j1, Branch.NORMAL));
+		Section second = new Section(20, new JunctionBranch(j2, Branch.REVERSE),
+				new JunctionBranch(j1, Branch.NORMAL));
+				
+		Track track = new Track(); // the track under test
+		try {
+			track.addSections(Arrays.asList(first, second));
+			Assert.fail("Expected an InvalidTrackException");
+		} catch (InvalidTrackException e) {
+			// expected
+		}
+		Assert.assertFalse(track.contains(first));
+		Assert.assertFalse(track.iterator().hasNext());
+		Assert.assertTrue(track.getJunctions().isEmpty());
+		
+		// a batch with a repeated, valid section is fine
+		track.addSections(Arrays.asList(first, first));
+		Assert.assertTrue(track.contains(first));
+		Assert.assertEquals(first, track.getTrackSection(j1, Branch.NORMAL));
+	}
+	
+	/** Test loading a track from its string representation **/
+	@Test
+	public void testLoad() throws IOException {
+		Track track = new Track();
+		track.addSection(new Section(9, new JunctionBranch(new Junction("j0"), Branch.FACING),
+				new JunctionBranch(new Junction("j1"), Branch.NORMAL)));
+		track.addSection(new Section(20, new JunctionBranch(new Junction("j1"), Branch.FACING),
+				new JunctionBranch(new Junction("odd) (name, FACING"), Branch.REVERSE)));
+		track.addSection(new Section(5, new JunctionBranch(new Junction("j0"), Branch.NORMAL),
+				new JunctionBranch(new Junction("j0"), Branch.REVERSE)));
+				
+		Track fromReader = new Track();
+		fromReader.load(new StringReader(track.toString()));
+		Assert.assertEquals(collect(track), collect(fromReader));
+		
+		Path file = Files.createTempFile("track", ".txt");
+		try {
+			Files.write(file, (track.toString() + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+			Track fromFile = new Track();
+			fromFile.load(file);
+			Assert.assertEquals(collect(track), collect(fromFile));
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	/** Test that malformed lines are reported with their line numbers **/
+	@Test
+	public void testLoadMalformed() throws IOException {
+		String text = "9 (j0, FACING) (j1, NORMAL)\n" + "nine (j1, FACING) (j2, NORMAL)\n"
+				+ "\n" + "4 (j2, FACING) (j3, SIDEWAYS)\n" + "0 (j4, FACING) (j5, NORMAL)";
+		Track track = new Track();
+		try {
+			track.load(new StringReader(text));
+			Assert.fail("Expected a TrackFormatException");
+		} catch (TrackFormatException e) {
+			Assert.assertEquals(Arrays.asList(2L, 4L, 5L), e.getLineNumbers());
+		}
+		Assert.assertFalse("The track should not be modified.", track.iterator().hasNext());
+	}
+	
+	/** Test that writeTo writes the same representation as toString, or a deterministic one **/
+	@Test
+	public void testWriteTo() throws IOException {
+		Junction j0 = new Junction("j0");
+		Junction j1 = new Junction("j1");
+		Section first = new Section(9, new JunctionBranch(j1, Branch.NORMAL),
+				new JunctionBranch(j0, Branch.FACING));
+		Section second = new Section(5, new JunctionBranch(j0, Branch.NORMAL),
+				new JunctionBranch(j0, Branch.REVERSE));
+		Section flipped = new Section(9, new JunctionBranch(j0, Branch.FACING),
+				new JunctionBranch(j1, Branch.NORMAL));
+				
+		Track track = new Track();
+		track.addSection(first);
+		track.addSection(second);
+		StringBuilder unsorted = new StringBuilder();
+		track.writeTo(unsorted, false);
+		Assert.assertEquals(track.toString(), unsorted.toString());
+		
+		// The same layout, built in another order, is written identically when sorted
+		Track other = new Track();
+		other.addSection(second);
+		other.addSection(flipped);
+		StringBuilder sorted = new StringBuilder();
+		StringBuilder otherSorted = new StringBuilder();
+		track.writeTo(sorted, true);
+		other.writeTo(otherSorted, true);
+		Assert.assertEquals("9 (j0, FACING) (j1, NORMAL)" + System.getProperty("line.separator")
+				+ "5 (j0, NORMAL) (j0, REVERSE)", sorted.toString());
+		Assert.assertEquals(sorted.toString(), otherSorted.toString());
+	}
+	
+	/** Test writing a track to a compressed file, and loading it back **/
+	@Test
+	public void testWriteToCompressedFile() throws IOException {
+		Track track = new Track();
+		for (int i = 0; i < 100; i++) {
+			track.addSection(new Section(i + 1, new JunctionBranch(new Junction("j" + i),
+					Branch.FACING), new JunctionBranch(new Junction("j" + (i + 1)), Branch.NORMAL)));
+		}
+		Path file = Files.createTempFile("track", ".txt.gz");
+		try {
+			track.writeTo(file, true);
+			byte[] bytes = Files.readAllBytes(file);
+			Assert.assertEquals("The file should be gzipped.", (byte) 0x1f, bytes[0]);
+			Track loaded = new Track();
+			loaded.load(file);
+			Assert.assertEquals(collect(track), collect(loaded));
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	/** Test the full and incremental invariant checks, on small and large tracks **/
+	@Test
+	public void testCheckInvariant() {
+		Track track = new Track();
+		Assert.assertTrue(track.checkInvariantIncrementally());
+		for (int i = 0; i < 20000; i++) {
+			track.addSection(new Section(1 + i, new JunctionBranch(new Junction("j" + i),
+					Branch.FACING), new JunctionBranch(new Junction("j" + (i + 1)), Branch.NORMAL)));
+		}
+		Assert.assertTrue(track.checkInvariant());
+		
+		Section loop = new Section(7, new JunctionBranch(new Junction("j20000"), Branch.FACING),
+				new JunctionBranch(new Junction("j20000"), Branch.REVERSE));
+		track.addSection(loop);
+		track.removeSection(new Section(1, new JunctionBranch(new Junction("j0"), Branch.FACING),
+				new JunctionBranch(new Junction("j1"), Branch.NORMAL)));
+		Assert.assertTrue(track.checkInvariantIncrementally());
+		Assert.assertTrue(track.checkInvariantIncrementally());
+		
+		track.removeSection(loop);
+		Assert.assertTrue(track.checkInvariantIncrementally());
+		Assert.assertTrue(track.checkInvariant());
+	}
+	
+	/** Test the connected components, as sections are added and removed **/
+	@Test
+	public void testConnected() {
+		Track track = new Track();
+		Junction[] j = new Junction[6];
+		for (int i = 0; i < j.length; i++) {
+			j[i] = new Junction("c" + i);
+		}
+		Assert.assertFalse(track.connected(j[0], j[0]));
+		Assert.assertEquals(0, track.components().size());
+		
+		// Two chains: c0-c1-c2 and c3-c4
+		Section s01 = new Section(1, new JunctionBranch(j[0], Branch.FACING),
+				new JunctionBranch(j[1], Branch.FACING));
+		Section s12 = new Section(2, new JunctionBranch(j[1], Branch.NORMAL),
+				new JunctionBranch(j[2], Branch.FACING));
+		Section s34 = new Section(3, new JunctionBranch(j[3], Branch.FACING),
+				new JunctionBranch(j[4], Branch.FACING));
+		track.addSections(Arrays.asList(s01, s12, s34));
+		Assert.assertTrue(track.connected(j[0], j[2]));
+		Assert.assertTrue(track.connected(new Junction("c2"), new Junction("c0")));
+		Assert.assertFalse(track.connected(j[0], j[3]));
+		Assert.assertFalse(track.connected(j[0], j[5]));
+		Assert.assertFalse(track.connected(j[0], null));
+		Assert.assertEquals(new HashSet<>(Arrays.asList(
+				new HashSet<>(Arrays.asList(j[0], j[1], j[2])),
+				new HashSet<>(Arrays.asList(j[3], j[4])))), new HashSet<>(track.components()));
+		
+		// Join the chains, then split them somewhere else
+		Section s24 = new Section(4, new JunctionBranch(j[2], Branch.NORMAL),
+				new JunctionBranch(j[4], Branch.NORMAL));
+		track.addSection(s24);
+		Assert.assertTrue(track.connected(j[0], j[3]));
+		Assert.assertEquals(1, track.components().size());
+		track.removeSection(s12);
+		Assert.assertFalse(track.connected(j[0], j[3]));
+		Assert.assertTrue(track.connected(j[2], j[3]));
+		Assert.assertEquals(new HashSet<>(Arrays.asList(
+				new HashSet<>(Arrays.asList(j[0], j[1])),
+				new HashSet<>(Arrays.asList(j[2], j[3], j[4])))), new HashSet<>(track.components()));
+		
+		// Junctions that leave the track are no longer connected to anything
+		track.removeSection(s01);
+		Assert.assertFalse(track.connected(j[0], j[0]));
+		Assert.assertEquals(1, track.components().size());
+	}
+	
+	/** Test streams over the sections, and that they are unaffected by later changes **/
+	@Test
+	public void testStream() {
+		Track track = new Track();
+		Assert.assertEquals(0, track.stream().count());
+		Set<Section> expected = new HashSet<>();
+		for (int i = 0; i < 1000; i++) {
+			Section section = new Section(1 + i, new JunctionBranch(new Junction("s" + i),
+					Branch.FACING), new JunctionBranch(new Junction("s" + (i + 1)), Branch.NORMAL));
+			track.addSection(section);
+			expected.add(section);
+		}
+		Spliterator<Section> spliterator = track.spliterator();
+		Assert.assertEquals(1000, spliterator.getExactSizeIfKnown());
+		Assert.assertTrue(spliterator.hasCharacteristics(Spliterator.SUBSIZED
+				| Spliterator.IMMUTABLE));
+		Assert.assertEquals(500, spliterator.trySplit().getExactSizeIfKnown());
+		
+		Stream<Section> stream = track.parallelStream();
+		track.removeSection(expected.iterator().next());
+		Assert.assertEquals(expected, stream.collect(Collectors.toSet()));
+		Assert.assertEquals(999, track.stream().count());
+		Assert.assertEquals(collect(track), track.parallelStream().collect(Collectors.toSet()));
+		Assert.assertEquals(collect(track).stream().mapToLong(Section::getLength).sum(),
+				track.parallelStream().mapToLong(Section::getLength).sum());
+	}
+	
+	private static Set<Section> collect(Track track) {
+		Set<Section> sections = new HashSet<>();
+		for (Section section : track) {
+			sections.add(section);
+		}
+		return sections;
+	}
+}
@@ -0,0 +1,120 @@
+package railway.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import railway.Branch;
+import railway.Junction;
+import railway.JunctionBranch;
+import railway.Section;
+import railway.Track;
+import railway.TrackVersion;
+
+/**
+ * Basic tests for the {@link TrackVersion} implementation class.
+ * 
+ * @author Addison Gourluck
+ */
+public class TrackVersionTest {
+	
+	// "Aa" and "BB" have the same hash code
+	private static final Junction AA = new Junction("Aa");
+	private static final Junction BB = new Junction("BB");
+	private static final Junction C = new Junction("C");
+	
+	private static final Section AA_C = new Section(9, new JunctionBranch(AA, Branch.FACING),
+			new JunctionBranch(C, Branch.NORMAL));
+	private static final Section BB_C = new Section(20, new JunctionBranch(BB, Branch.FACING),
+			new JunctionBranch(C, Branch.REVERSE));
+			
+	@Test
+	public void versionIsStableTest() {
+		Track track = new Track();
+		track.addSection(AA_C);
+		TrackVersion first = track.snapshot();
+		track.addSection(BB_C);
+		TrackVersion second = track.snapshot();
+		track.removeSection(AA_C);
+		TrackVersion third = track.snapshot();
+		
+		assertEquals(1, first.size());
+		assertTrue(first.contains(AA_C));
+		assertFalse(first.contains(BB_C));
+		assertNull(first.getTrackSection(BB, Branch.FACING));
+		assertEquals(1, first.getDegree(C));
+		
+		assertEquals(2, second.size());
+		assertSame(AA_C, second.getTrackSection(AA, Branch.FACING));
+		assertSame(BB_C, second.getTrackSection(BB, Branch.FACING));
+		assertEquals(2, second.getDegree(C));
+		assertEquals(sections(second), new HashSet<>(Arrays.asList(AA_C, BB_C)));
+		
+		assertEquals(1, third.size());
+		assertFalse(third.contains(AA_C));
+		assertSame(BB_C, third.getTrackSection(BB, Branch.FACING));
+		assertNull(third.getTrackSection(AA, Branch.FACING));
+		
+		assertNotEquals(first.getVersion(), second.getVersion());
+		assertNotEquals(second.getVersion(), third.getVersion());
+		assertEquals(third.getVersion(), track.snapshot().getVersion());
+	}
+	
+	/** Compare each version against a copy of the track taken at the same time **/
+	@Test
+	public void versionRandomTest() {
+		Random random = new Random(42);
+		Track track = new Track();
+		List<TrackVersion> versions = new ArrayList<>();
+		List<Set<Section>> expected = new ArrayList<>();
+		
+		List<Section> candidates = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			candidates.add(new Section(1 + i, new JunctionBranch(new Junction("j" + i),
+					Branch.FACING), new JunctionBranch(new Junction("k" + (i % 700)),
+							Branch.values()[i % 3])));
+		}
+		for (int step = 0; step < 5000; step++) {
+			Section section = candidates.get(random.nextInt(candidates.size()));
+			if (track.contains(section)) {
+				track.removeSection(section);
+			} else if (track.getTrackSection(new Junction("k" + ((section.getLength() - 1) % 700)),
+					Branch.values()[(section.getLength() - 1) % 3]) == null) {
+				track.addSection(section);
+			}
+			if (step % 500 == 0) {
+				versions.add(track.snapshot());
+				expected.add(sections(track));
+			}
+		}
+		for (int i = 0; i < versions.size(); i++) {
+			TrackVersion version = versions.get(i);
+			assertEquals(expected.get(i), sections(version));
+			assertEquals(expected.get(i).size(), version.size());
+			for (Section section : candidates) {
+				assertEquals(expected.get(i).contains(section), version.contains(section));
+			}
+		}
+	}
+	
+	private static Set<Section> sections(Iterable<Section> track) {
+		Set<Section> sections = new HashSet<>();
+		for (Section section : track) {
+			assertFalse("Duplicate section " + section, sections.contains(section));
+			sections.add(section);
+		}
+		return sections;
+	}
+}